@@ -0,0 +1,74 @@
+package se.iths.springbootgroupproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import se.iths.springbootgroupproject.configurations.CachingConfig;
+import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.services.LibreTranslateService;
+import se.iths.springbootgroupproject.services.MessageService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached service calls through the caching proxy and cache manager from {@link CachingConfig}:
+ * key evaluation, lookup and, on a miss, loading and storing the value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private MessageService messageService;
+    private KeyGenerator contentHashKeyGenerator;
+    private List<String> translationTexts;
+    private int page;
+
+    @Setup
+    public void setUp() {
+        List<Object[]> rows = FakeMessageRepository.rows(10);
+        MessageRepository repository = FakeMessageRepository.of(
+                rows.stream().map(FakeMessageRepository::toEntity).toList(),
+                rows.stream().map(FakeMessageRepository::toProjection).toList());
+
+        context = new AnnotationConfigApplicationContext();
+        context.register(CachingConfig.class, MessageService.class);
+        context.registerBean(MessageRepository.class, () -> repository);
+        context.refresh();
+        messageService = context.getBean(MessageService.class);
+        contentHashKeyGenerator = context.getBean("contentHashKeyGenerator", KeyGenerator.class);
+        translationTexts = List.of(rows.getFirst()[3].toString(), rows.getFirst()[4].toString());
+        messageService.findPublicMessagesPage(PageRequest.of(0, 10));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MessageAndUsername> hit() {
+        return messageService.findPublicMessagesPage(PageRequest.of(0, 10));
+    }
+
+    // A new page every call, once the cache is full every miss also evicts an entry
+    @Benchmark
+    public Page<MessageAndUsername> miss() {
+        return messageService.findPublicMessagesPage(PageRequest.of(++page, 10));
+    }
+
+    @Benchmark
+    public Object translationKey() throws NoSuchMethodException {
+        return contentHashKeyGenerator.generate(null,
+                LibreTranslateService.class.getMethod("translateMessages", List.class), translationTexts);
+    }
+
+}
@@ -0,0 +1,69 @@
+package se.iths.springbootgroupproject.benchmarks;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.User;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory stand-in for the repository, so the benchmarks measure what happens in the JVM
+ * after the rows are read and not the database round trip.
+ */
+final class FakeMessageRepository {
+
+    static final int TOTAL = 100_000;
+
+    private FakeMessageRepository() {
+    }
+
+    static MessageRepository of(List<Message> entities, List<MessageAndUsername> projections) {
+        return (MessageRepository) Proxy.newProxyInstance(MessageRepository.class.getClassLoader(),
+                new Class<?>[]{MessageRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> new PageImpl<>(entities, (Pageable) args[0], TOTAL);
+                    case "findAllByPrivateMessageIsFalse", "findAllWithUsername" -> projections;
+                    case "countByPrivateMessageIsFalse", "count" -> (long) TOTAL;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "FakeMessageRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static List<Object[]> rows(int size) {
+        List<Object[]> rows = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++)
+            rows.add(new Object[]{id, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1), "Title " + id,
+                    "Message body number " + id + " with some more text to make it look like a message",
+                    "user" + id % 20});
+        return rows;
+    }
+
+    // What Hibernate builds for every row when the query returns entities
+    static Message toEntity(Object[] row) {
+        User user = new User();
+        user.setUserName((String) row[5]);
+        Message message = new Message();
+        message.setId((Long) row[0]);
+        message.setDate((LocalDate) row[1]);
+        message.setLastChanged((LocalDate) row[2]);
+        message.setTitle((String) row[3]);
+        message.setMessageBody((String) row[4]);
+        message.setUser(user);
+        return message;
+    }
+
+    // What Hibernate builds for every row of a select new MessageAndUsername(...) query
+    static MessageAndUsername toProjection(Object[] row) {
+        return new MessageAndUsername((Long) row[0], (LocalDate) row[1], (LocalDate) row[2],
+                (String) row[3], (String) row[4], (String) row[5]);
+    }
+
+}
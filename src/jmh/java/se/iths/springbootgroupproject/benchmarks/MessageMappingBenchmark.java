@@ -0,0 +1,118 @@
+package se.iths.springbootgroupproject.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.User;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.services.MessageService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of messages with their authors read through Hibernate from {@link InMemoryDatabase}: as entities
+ * mapped afterwards, as {@link MessageService#findAllMessages(Pageable)} used to, compared to the
+ * {@link MessageAndUsername} records the query builds now, and to an interface projection.
+ * The service runs without its caches, every call reads from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageMappingBenchmark {
+
+    private static final int MESSAGES = 10_000;
+    private static final int USERS = 20;
+
+    @Param({"10", "100", "1000"})
+    int pageSize;
+
+    private AnnotationConfigApplicationContext context;
+    private MessageService messageService;
+    private MessageRepository messageRepository;
+    private MessageViewRepository messageViewRepository;
+    private TransactionTemplate readOnly;
+    private Pageable pageable;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(InMemoryDatabase.class, MessageService.class);
+        context.refresh();
+        messageService = context.getBean(MessageService.class);
+        messageRepository = context.getBean(MessageRepository.class);
+        messageViewRepository = context.getBean(MessageViewRepository.class);
+        TransactionTemplate readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        pageable = PageRequest.of(0, pageSize);
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        readWrite.executeWithoutResult(status -> insertMessages(entityManager));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Every author is loaded lazily with a select of its own the first time the page refers to it
+    @Benchmark
+    public List<MessageAndUsername> entitiesMapped() {
+        return readOnly.execute(status -> messageRepository.findAll(pageable).getContent().stream()
+                .map(message -> new MessageAndUsername(message.getId(), message.getDate(), message.getLastChanged(),
+                        message.getTitle(), message.getMessageBody(), message.getUser().getUserName()))
+                .toList());
+    }
+
+    @Benchmark
+    public List<MessageAndUsername> constructorProjection() {
+        return messageService.findAllMessages(pageable);
+    }
+
+    @Benchmark
+    public List<MessageAndUsername> interfaceProjection() {
+        return readOnly.execute(status -> messageViewRepository.findAllViews(pageable).stream()
+                .map(view -> new MessageAndUsername(view.getId(), view.getDate(), view.getLastChanged(),
+                        view.getTitle(), view.getMessageBody(), view.getUserName()))
+                .toList());
+    }
+
+    private static void insertMessages(EntityManager entityManager) {
+        User[] users = new User[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = new User();
+            users[i].setUserName("user" + i);
+            entityManager.persist(users[i]);
+        }
+        for (int i = 1; i <= MESSAGES; i++) {
+            Message message = new Message();
+            message.setDate(LocalDate.of(2024, 1, 1));
+            message.setLastChanged(LocalDate.of(2024, 2, 1));
+            message.setTitle("Title " + i);
+            message.setMessageBody("Message body number " + i + " with some more text to make it look like a message");
+            message.setUser(users[i % USERS]);
+            entityManager.persist(message);
+            if (i % 1000 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                for (int u = 0; u < USERS; u++)
+                    users[u] = entityManager.getReference(User.class, users[u].getId());
+            }
+        }
+    }
+
+}
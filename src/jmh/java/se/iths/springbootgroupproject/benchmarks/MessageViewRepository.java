@@ -0,0 +1,39 @@
+package se.iths.springbootgroupproject.benchmarks;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import se.iths.springbootgroupproject.entities.Message;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The listing of {@code MessageRepository.findAllWithUsername} as an interface projection, which
+ * Spring Data backs with a proxy over each result tuple instead of a record built by the query.
+ */
+interface MessageViewRepository extends Repository<Message, Long> {
+
+    @Query("""
+            select m.id as id, m.date as date, m.lastChanged as lastChanged, m.title as title,
+                m.messageBody as messageBody, u.userName as userName
+            from Message m left join m.user u
+            order by m.id asc
+            """)
+    List<MessageView> findAllViews(Pageable pageable);
+
+    interface MessageView {
+        Long getId();
+
+        LocalDate getDate();
+
+        LocalDate getLastChanged();
+
+        String getTitle();
+
+        String getMessageBody();
+
+        String getUserName();
+    }
+
+}
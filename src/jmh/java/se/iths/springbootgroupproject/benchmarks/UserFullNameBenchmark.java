@@ -0,0 +1,30 @@
+package se.iths.springbootgroupproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.iths.springbootgroupproject.entities.User;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link User#setFullName(String)} runs for every GitHub login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFullNameBenchmark {
+
+    @Param({"Frodo Baggins", "  Bilbo   Baggins  ", "Gandalf", "Samwise Gamgee of the Shire"})
+    String fullName;
+
+    private final User user = new User();
+
+    @Benchmark
+    public User setFullName() {
+        user.setFullName(fullName);
+        return user;
+    }
+
+}
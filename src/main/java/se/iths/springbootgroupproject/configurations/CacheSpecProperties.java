@@ -0,0 +1,45 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Size and lifetime of the local caches. Caches without an entry in {@code specs} use {@code defaults}.
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public record CacheSpecProperties(@DefaultValue Spec defaults, Map<String, Spec> specs, @DefaultValue Redis redis) {
+
+    public CacheSpecProperties {
+        specs = specs == null ? Map.of() : specs;
+    }
+
+    public Spec specFor(String cacheName) {
+        return specs.getOrDefault(cacheName, defaults);
+    }
+
+    /**
+     * @param shared whether the cache is also kept in Redis when the two tier cache is enabled,
+     *               only for caches whose values are serializable
+     */
+    public record Spec(@DefaultValue("1000") long maximumSize,
+                       @DefaultValue("10m") Duration expireAfterWrite,
+                       @DefaultValue("false") boolean shared) {
+    }
+
+    /**
+     * @param enabled                local caches backed by Redis, with evictions broadcast to the other nodes
+     * @param channel                pub/sub channel the evictions are broadcast on
+     * @param keyPrefix              prefix for the cache keys in Redis
+     * @param localExpireAfterWrite  upper bound for how long a node keeps its local copy,
+     *                               limits how long a missed eviction can leave it stale
+     */
+    public record Redis(@DefaultValue("false") boolean enabled,
+                        @DefaultValue("cache-invalidation") String channel,
+                        @DefaultValue("cache:") String keyPrefix,
+                        @DefaultValue("1m") Duration localExpireAfterWrite) {
+    }
+
+}
@@ -1,27 +1,166 @@
 package se.iths.springbootgroupproject.configurations;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
-import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import se.iths.springbootgroupproject.configurations.cache.TwoTierCache;
+import se.iths.springbootgroupproject.configurations.cache.TwoTierCacheManager;
+import se.iths.springbootgroupproject.services.ContentHash;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Configuration
-@EnableCaching
+// Ordered before the Resilience4j aspects, so cached translations are still served while the breaker is open
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 10)
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CachingConfig {
 
+    // Registered up front so their statistics are bound to the meter registry at startup
+    static final List<String> CACHE_NAMES = List.of(
+            "messages",
+            "publicMessages",
+            "email",
+            "username",
+            "users",
+            "userNames",
+            "translations");
+
+    // Synchronous caches, so a sync = true loader runs in the calling thread with its transaction and
+    // security context, and its exceptions reach the caller as thrown. It runs inside the map's compute,
+    // which pins a virtual thread until it returns. An async cache would avoid that by running the loader
+    // on the common fork join pool instead, and hand its exceptions over wrapped in a CompletionException
     @Bean
-    public CacheManager cacheManager() {
-        SimpleCacheManager cacheManager = new SimpleCacheManager();
-        cacheManager.setCaches(Arrays.asList(
-                new ConcurrentMapCache("messages"),
-                new ConcurrentMapCache("publicMessages"),
-                new ConcurrentMapCache("email"),
-                new ConcurrentMapCache("username")));
+    @ConditionalOnProperty(prefix = "app.cache.redis", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public CacheManager cacheManager(CacheSpecProperties cacheSpecProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(caffeine(cacheSpecProperties.defaults()));
+        CACHE_NAMES.forEach(name -> cacheManager.registerCustomCache(name,
+                caffeine(cacheSpecProperties.specFor(name)).build()));
         return cacheManager;
     }
 
-}
\ No newline at end of file
+    // Keys results by a hash of the arguments instead of holding on to whole message bodies as keys
+    @Bean
+    public KeyGenerator contentHashKeyGenerator() {
+        return (target, method, params) -> method.getName() + ":" + ContentHash.of(Arrays.stream(params)
+                .flatMap(param -> param instanceof Collection<?> values ? values.stream() : Stream.of(param))
+                .map(String::valueOf)
+                .toArray(String[]::new));
+    }
+
+    // Boot publishes cache.gets by result, the ratio is added so a dashboard can show it per cache directly.
+    // With the two tier cache it is the ratio of the local tier
+    @Bean
+    MeterBinder cacheHitRatioMetrics(CacheManager cacheManager) {
+        return registry -> CACHE_NAMES.forEach(name -> {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof Cache<?, ?> caffeineCache)
+                Gauge.builder("cache.hit.ratio", caffeineCache, c -> c.stats().hitRate())
+                        .tag("cache", name)
+                        .register(registry);
+        });
+    }
+
+    static Caffeine<Object, Object> caffeine(CacheSpecProperties.Spec spec) {
+        return caffeine(spec.maximumSize(), spec.expireAfterWrite());
+    }
+
+    static Caffeine<Object, Object> caffeine(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats();
+    }
+
+    /**
+     * Used when several instances run behind the load balancer. Each node keeps a local copy,
+     * caches marked as shared are also kept in Redis, and evictions are broadcast to the other nodes.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "app.cache.redis", name = "enabled", havingValue = "true")
+    static class TwoTierCachingConfig {
+
+        private static final int CLEAR_BATCH_SIZE = 1000;
+
+        @Bean
+        public TwoTierCacheManager cacheManager(CacheSpecProperties cacheSpecProperties,
+                                                RedisConnectionFactory redisConnectionFactory,
+                                                StringRedisTemplate stringRedisTemplate) {
+            CacheSpecProperties.Redis redis = cacheSpecProperties.redis();
+            List<String> sharedCacheNames = CACHE_NAMES.stream()
+                    .filter(name -> cacheSpecProperties.specFor(name).shared())
+                    .toList();
+
+            RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                    .prefixCacheNameWith(redis.keyPrefix());
+            // Clearing a cache deletes its keys in SCAN batches. The default writer looks them up with KEYS,
+            // which blocks Redis while it walks the whole key space, on every allEntries eviction
+            RedisCacheWriter redisCacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory,
+                    BatchStrategies.scan(CLEAR_BATCH_SIZE));
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisCacheWriter)
+                    .cacheDefaults(defaults)
+                    .withInitialCacheConfigurations(sharedCacheNames.stream().collect(Collectors.toMap(
+                            Function.identity(),
+                            name -> defaults.entryTtl(cacheSpecProperties.specFor(name).expireAfterWrite()))))
+                    .build();
+            redisCacheManager.initializeCaches();
+
+            return new TwoTierCacheManager(CACHE_NAMES,
+                    name -> {
+                        CacheSpecProperties.Spec spec = cacheSpecProperties.specFor(name);
+                        Duration expireAfterWrite = spec.expireAfterWrite().compareTo(redis.localExpireAfterWrite()) < 0
+                                ? spec.expireAfterWrite()
+                                : redis.localExpireAfterWrite();
+                        return new CaffeineCache(name, caffeine(spec.maximumSize(), expireAfterWrite).build(), true);
+                    },
+                    TwoTierCacheManager.sharedCaches(redisCacheManager, sharedCacheNames),
+                    stringRedisTemplate,
+                    redis.channel());
+        }
+
+        @Bean
+        RedisMessageListenerContainer cacheEvictionListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                     TwoTierCacheManager cacheManager,
+                                                                     CacheSpecProperties cacheSpecProperties) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisConnectionFactory);
+            container.addMessageListener(cacheManager, new ChannelTopic(cacheSpecProperties.redis().channel()));
+            return container;
+        }
+
+        // Publishes the statistics of the local tier, Redis round trips show up in the Redis client metrics
+        @Bean
+        CacheMeterBinderProvider<TwoTierCache> twoTierCacheMeterBinderProvider() {
+            return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getNativeCache(), cache.getName(), tags);
+        }
+
+    }
+
+}
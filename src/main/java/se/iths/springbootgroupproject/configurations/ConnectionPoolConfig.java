@@ -0,0 +1,103 @@
+package se.iths.springbootgroupproject.configurations;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import se.iths.springbootgroupproject.configurations.datasource.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Warns at startup when a connection pool doesn't fit the number of threads that can use it. With
+ * platform threads those are Tomcat's worker threads. With virtual threads Tomcat runs a thread per
+ * connection, so it is {@code server.tomcat.max-connections} when that is set. Tomcat's default of 8192
+ * also counts idle keep-alive connections and bounds nothing in practice, then the pools themselves
+ * limit the concurrency and the check is skipped. The translation executor comes on top.
+ * <p>
+ * With the read/write split the primary and every replica pool is checked on its own, as all reads
+ * fall back to the primary while the replicas are out of rotation.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
+public class ConnectionPoolConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolConfig.class);
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> connectionPoolSizeCheck(ObjectProvider<DataSource> dataSources,
+                                                                       ObjectProvider<ServerProperties> serverProperties,
+                                                                       TranslationPipelineProperties translationPipelineProperties,
+                                                                       ConnectionPoolProperties connectionPoolProperties,
+                                                                       Environment environment) {
+        return event -> {
+            DataSource dataSource = dataSources.getIfUnique();
+            ServerProperties server = serverProperties.getIfAvailable();
+            if (dataSource == null || server == null)
+                return;
+            List<HikariDataSource> pools = pools(dataSource);
+            if (pools.isEmpty())
+                return;
+            OptionalInt requestThreads = requestThreads(server, environment);
+            if (requestThreads.isEmpty()) {
+                log.info("Virtual threads without server.tomcat.max-connections, the connection pools limit how many " +
+                         "requests use the database at once");
+                return;
+            }
+            int threads = requestThreads.getAsInt() + translationPipelineProperties.poolSize();
+            pools.forEach(pool -> poolSizeWarning(pool.getPoolName(), pool.getMaximumPoolSize(), threads,
+                    connectionPoolProperties.maxThreadsPerConnection())
+                    .ifPresent(log::warn));
+        };
+    }
+
+    // Empty with virtual threads and Tomcat's default connection cap, nothing but the pools bounds the requests then
+    static OptionalInt requestThreads(ServerProperties server, Environment environment) {
+        if (!Threading.VIRTUAL.isActive(environment))
+            return OptionalInt.of(server.getTomcat().getThreads().getMax());
+        if (Binder.get(environment).bind("server.tomcat.max-connections", Integer.class).isBound())
+            return OptionalInt.of(server.getTomcat().getMaxConnections());
+        return OptionalInt.empty();
+    }
+
+    // The data source bean is wrapped for JDBC observations and, with the read/write split, routes to
+    // several pools. The pools are found behind it
+    static List<HikariDataSource> pools(DataSource dataSource) {
+        ReadWriteRoutingDataSource routing = DataSourceUnwrapper.unwrap(dataSource, ReadWriteRoutingDataSource.class);
+        Collection<DataSource> targets = routing == null
+                ? List.of(dataSource)
+                : routing.getResolvedDataSources().values();
+        return targets.stream()
+                .map(target -> DataSourceUnwrapper.unwrap(target, HikariConfigMXBean.class, HikariDataSource.class))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    static Optional<String> poolSizeWarning(String pool, int poolSize, int threads, int maxThreadsPerConnection) {
+        if (poolSize > threads)
+            return Optional.of(("The connection pool %s holds %d connections but at most %d threads can use them, " +
+                                "lower spring.datasource.hikari.maximum-pool-size").formatted(pool, poolSize, threads));
+        if (threads > (long) poolSize * maxThreadsPerConnection)
+            return Optional.of(("%d threads share the connection pool %s of %d and will queue for connections under load. " +
+                                "Raise spring.datasource.hikari.maximum-pool-size, or lower server.tomcat.threads.max, " +
+                                "or server.tomcat.max-connections with virtual threads").formatted(threads, pool, poolSize));
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,15 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits for the startup check of the connection pool size, the pool itself is configured under
+ * {@code spring.datasource.hikari}.
+ *
+ * @param maxThreadsPerConnection how many threads that may use the database can share one pooled
+ *                                connection before the check warns that they will queue for connections
+ */
+@ConfigurationProperties(prefix = "app.datasource.pool-check")
+public record ConnectionPoolProperties(@DefaultValue("8") int maxThreadsPerConnection) {
+}
@@ -0,0 +1,35 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Objects;
+
+/**
+ * Fills the database with generated users and messages at startup, for reproducing production volumes locally:
+ * {@code mvn spring-boot:run -Dspring-boot.run.profiles=datagen -Dspring-boot.run.arguments=--app.datagen.messages=1000000}
+ */
+@Configuration
+@Profile("datagen")
+@EnableConfigurationProperties(DataGeneratorProperties.class)
+public class DataGeneratorConfig {
+
+    @Bean
+    ApplicationRunner generateData(JdbcTemplate jdbcTemplate, DataGeneratorProperties properties, CacheManager cacheManager) {
+        return args -> {
+            new SyntheticDataGenerator(jdbcTemplate, properties).generate();
+            // Cached listings and counts, also the ones kept in Redis, no longer match the database
+            cacheManager.getCacheNames().stream()
+                    .map(cacheManager::getCache)
+                    .filter(Objects::nonNull)
+                    .forEach(Cache::clear);
+        };
+    }
+
+}
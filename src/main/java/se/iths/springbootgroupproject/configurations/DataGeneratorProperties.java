@@ -0,0 +1,23 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Volume and shape of the data created by the {@code datagen} profile.
+ *
+ * @param privateRatio share of messages that are private
+ * @param userSkew     Zipf exponent for how messages are spread over users, 0 spreads them evenly
+ *                     and higher values give a few users most of the messages
+ * @param days         messages are dated over this many days back from today
+ * @param seed         the same seed and settings give the same data
+ */
+@ConfigurationProperties(prefix = "app.datagen")
+public record DataGeneratorProperties(@DefaultValue("1000") int users,
+                                      @DefaultValue("100000") int messages,
+                                      @DefaultValue("0.25") double privateRatio,
+                                      @DefaultValue("1.1") double userSkew,
+                                      @DefaultValue("1095") int days,
+                                      @DefaultValue("1000") int batchSize,
+                                      @DefaultValue("42") long seed) {
+}
@@ -3,6 +3,7 @@ package se.iths.springbootgroupproject.configurations;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
@@ -15,8 +16,9 @@ import java.time.LocalDate;
 @EnableJpaAuditing
 public class DbInitConfig {
 
-    //For development purpose we init db with some values
+    //For development purpose we init db with some values, the datagen profile creates its own data instead
     @Bean
+    @Profile("!datagen")
     ApplicationRunner databaseInit2(MessageRepository repository, UserRepository userRepository) {
         return args -> {
             var result = repository.findByTitle("TempTitle");
@@ -0,0 +1,51 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+@Configuration
+@EnableConfigurationProperties(LibreTranslateProperties.class)
+public class LibreTranslateConfig {
+
+    // Pooled keep-alive connections, so a translation doesn't pay for a new TCP connection every call
+    @Bean
+    CloseableHttpClient libreTranslateHttpClient(LibreTranslateProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(properties.maxConnections())
+                        .setMaxConnPerRoute(properties.maxConnections())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(properties.connectTimeout()))
+                                .setSocketTimeout(Timeout.of(properties.readTimeout()))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.connectTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.readTimeout()))
+                        .setConnectionKeepAlive(TimeValue.of(properties.keepAlive()))
+                        .build())
+                .evictIdleConnections(TimeValue.of(properties.keepAlive()))
+                .build();
+    }
+
+    @Bean
+    RestClient libreTranslateRestClient(RestClient.Builder builder,
+                                        CloseableHttpClient libreTranslateHttpClient,
+                                        LibreTranslateProperties properties) {
+        return builder
+                .baseUrl(properties.baseUrl())
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(libreTranslateHttpClient))
+                .build();
+    }
+
+}
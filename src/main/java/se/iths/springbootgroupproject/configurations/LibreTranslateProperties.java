@@ -0,0 +1,21 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Connection to the LibreTranslate server.
+ *
+ * @param readTimeout    longest wait for a response once the request is sent
+ * @param maxConnections pooled connections kept open to the server
+ * @param keepAlive      how long an idle pooled connection is reused before it is closed
+ */
+@ConfigurationProperties(prefix = "app.libretranslate")
+public record LibreTranslateProperties(@DefaultValue("http://localhost:5000") String baseUrl,
+                                       @DefaultValue("1s") Duration connectTimeout,
+                                       @DefaultValue("3s") Duration readTimeout,
+                                       @DefaultValue("20") int maxConnections,
+                                       @DefaultValue("30s") Duration keepAlive) {
+}
@@ -0,0 +1,14 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The account Prometheus and other scrapers use to read the metrics endpoints with HTTP Basic.
+ *
+ * @param username name of the scrape account
+ * @param password password with its encoder prefix, e.g. {@code {bcrypt}...}. Without one there is no scrape
+ *                 account and the metrics endpoints can't be read at all
+ */
+@ConfigurationProperties(prefix = "app.metrics.scrape")
+public record MetricsScrapeProperties(String username, String password) {
+}
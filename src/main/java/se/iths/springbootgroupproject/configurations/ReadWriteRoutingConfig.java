@@ -0,0 +1,118 @@
+package se.iths.springbootgroupproject.configurations;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.cache.interceptor.CacheOperationSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import se.iths.springbootgroupproject.configurations.cache.TwoTierCacheManager;
+import se.iths.springbootgroupproject.configurations.datasource.CacheFillRoutingAspect;
+import se.iths.springbootgroupproject.configurations.datasource.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read/write split, replaces Boot's single pool when {@code app.datasource.routing.enabled} is set.
+ * Services mark the reads that may be served by a replica with {@code @Transactional(readOnly = true)}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadWriteRoutingProperties.class)
+public class ReadWriteRoutingConfig {
+
+    // The pool Boot would have created, still configured by spring.datasource.hikari.*. Flyway migrates it directly
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                       ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+        HikariDataSource dataSource = details == null
+                ? properties.initializeDataSourceBuilder().type(HikariDataSource.class).build()
+                : DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(details.getJdbcUrl())
+                        .username(details.getUsername())
+                        .password(details.getPassword())
+                        .driverClassName(details.getDriverClassName())
+                        .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Evictions on the other nodes reach this one through the two tier cache manager, when there is one
+    @Bean
+    ReadWriteRoutingDataSource readWriteRoutingDataSource(HikariDataSource primaryDataSource,
+                                                          ReadWriteRoutingProperties properties,
+                                                          ObjectProvider<MeterRegistry> meterRegistry,
+                                                          ObjectProvider<TwoTierCacheManager> twoTierCacheManager) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < properties.replicas().size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, replicaDataSource(primaryDataSource, properties.replicas().get(i), name,
+                    meterRegistry.getIfAvailable()));
+        }
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                properties.maxLag(), ReadWriteRoutingConfig::currentUser);
+        twoTierCacheManager.ifAvailable(cacheManager -> cacheManager.addRemoteEvictionListener(routingDataSource::cacheEvicted));
+        return routingDataSource;
+    }
+
+    @Bean
+    CacheFillRoutingAspect cacheFillRoutingAspect(ReadWriteRoutingDataSource readWriteRoutingDataSource,
+                                                  CacheOperationSource cacheOperationSource) {
+        return new CacheFillRoutingAspect(readWriteRoutingDataSource, cacheOperationSource);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    // The logged in user of the request. Anonymous requests and background jobs have none
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken)
+            return null;
+        return authentication.getName();
+    }
+
+    // Same pool settings and driver properties as the primary. The replica pools aren't beans, so Boot
+    // doesn't bind their metrics, they are registered here and told apart from the primary by pool name
+    private static HikariDataSource replicaDataSource(HikariDataSource primary,
+                                                      ReadWriteRoutingProperties.Replica replica,
+                                                      String name,
+                                                      MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName(name);
+        config.setJdbcUrl(replica.url());
+        if (replica.username() != null)
+            config.setUsername(replica.username());
+        if (replica.password() != null)
+            config.setPassword(replica.password());
+        config.setReadOnly(true);
+        if (meterRegistry != null)
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+
+}
@@ -0,0 +1,34 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas for the read/write split.
+ *
+ * @param enabled          routes read-only transactions to the replicas, writes stay on spring.datasource
+ * @param maxLag           how far a replica may be behind the primary and still get reads, and how long
+ *                         the reads of a user who has just written, and those that refill an evicted
+ *                         cache, stay on the primary
+ * @param lagCheckInterval how often the replication lag of every replica is read
+ */
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public record ReadWriteRoutingProperties(@DefaultValue("false") boolean enabled,
+                                         List<Replica> replicas,
+                                         @DefaultValue("5s") Duration maxLag,
+                                         @DefaultValue("5s") Duration lagCheckInterval) {
+
+    public ReadWriteRoutingProperties {
+        replicas = replicas == null ? List.of() : replicas;
+    }
+
+    /**
+     * Username and password default to those of the primary.
+     */
+    public record Replica(String url, String username, String password) {
+    }
+
+}
@@ -1,27 +1,55 @@
 package se.iths.springbootgroupproject.configurations;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
-import org.springframework.web.client.RestClient;
+import org.springframework.util.StringUtils;
 import se.iths.springbootgroupproject.services.github.GithubOAuth2UserService;
 
 @Configuration
-@EnableRetry
+@EnableConfigurationProperties(MetricsScrapeProperties.class)
 public class SecurityConfig {
 
+    static final String METRICS = "METRICS";
+
     private final GithubOAuth2UserService githubOAuth2UserService;
 
     public SecurityConfig(GithubOAuth2UserService githubOAuth2UserService) {
         this.githubOAuth2UserService = githubOAuth2UserService;
     }
 
+    // Prometheus can't log in through GitHub, and a GitHub login shouldn't be enough to read the metrics.
+    // Meter names and tags give away cache names, URIs and the state of the pools
+    @Bean
+    @Order(1)
+    SecurityFilterChain actuator(HttpSecurity http, MetricsScrapeProperties scrape) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/metrics/**", "/actuator/prometheus").hasRole(METRICS)
+                        .anyRequest().denyAll()
+                )
+                .httpBasic(Customizer.withDefaults())
+                .userDetailsService(scrapeAccount(scrape))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable);
+        return http.build();
+    }
+
     @Bean
     SecurityFilterChain web(HttpSecurity http) throws Exception {
         http
@@ -52,6 +80,15 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private static UserDetailsService scrapeAccount(MetricsScrapeProperties scrape) {
+        if (!StringUtils.hasText(scrape.username()) || !StringUtils.hasText(scrape.password()))
+            return new InMemoryUserDetailsManager();
+        return new InMemoryUserDetailsManager(User.withUsername(scrape.username())
+                .password(scrape.password())
+                .roles(METRICS)
+                .build());
+    }
+
     @Bean
     static RoleHierarchy roleHierarchy() {
         RoleHierarchyImpl hierarchy = new RoleHierarchyImpl();
@@ -65,9 +102,4 @@ public class SecurityConfig {
         return new SimpleUrlAuthenticationSuccessHandler("/web/myprofile");
     }
 
-    @Bean
-    RestClient restClient() {
-        return RestClient.create();
-    }
-
 }
@@ -0,0 +1,55 @@
+package se.iths.springbootgroupproject.configurations;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import se.iths.springbootgroupproject.configurations.datasource.SqlBudgetFilter;
+import se.iths.springbootgroupproject.configurations.datasource.SqlStatementCounter;
+
+import javax.sql.DataSource;
+
+/**
+ * Per request SQL statement budget, only registered when {@code app.sql-budget.enabled} is set.
+ * Statements are counted on the thread handling the request, so the translation pipeline and
+ * streamed response bodies don't count towards it.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.sql-budget", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SqlBudgetProperties.class)
+public class SqlBudgetConfig {
+
+    // The data source the application uses, with ReadWriteRoutingConfig the proxy in front of the routing
+    private static final String DATA_SOURCE = "dataSource";
+
+    // Static, so the post processor doesn't instantiate this configuration early
+    @Bean
+    static BeanPostProcessor sqlStatementCountingDataSource(ObjectProvider<SqlBudgetProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || !DATA_SOURCE.equals(beanName))
+                    return bean;
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new SqlStatementCounter(properties.getObject().slowStatement()))
+                        .build();
+            }
+        };
+    }
+
+    // Ahead of Spring Security, so statements run while authenticating are counted too
+    @Bean
+    FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(SqlBudgetProperties properties) {
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(new SqlBudgetFilter(
+                properties.maxStatements(), properties.maxTime(), properties.responseHeader()));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+}
@@ -0,0 +1,23 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Counts and times the SQL statements of every HTTP request, to find N+1 queries before they show up under load.
+ *
+ * @param enabled        wraps the data source and registers the request filter
+ * @param maxStatements  requests running more statements than this are logged
+ * @param maxTime        requests spending more time than this in SQL statements are logged
+ * @param slowStatement  single statements taking longer than this are logged with their SQL
+ * @param responseHeader adds the statement count of the request as an X-SQL-Count header, meant for development
+ */
+@ConfigurationProperties(prefix = "app.sql-budget")
+public record SqlBudgetProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue("10") int maxStatements,
+                                  @DefaultValue("500ms") Duration maxTime,
+                                  @DefaultValue("200ms") Duration slowStatement,
+                                  @DefaultValue("false") boolean responseHeader) {
+}
@@ -0,0 +1,146 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Creates users and messages with JDBC batch inserts. Users are named {@code gen-user-<n>} with
+ * GitHub id n, and user 1 gets the most messages. Running it again adds more users after the existing ones.
+ * Ids are reserved from the same sequence tables Hibernate allocates from, so they never collide.
+ */
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+    private static final String USER_PREFIX = "gen-user-";
+    // Same as allocationSize of the entities' sequence generators
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final String[] WORDS = ("lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod " +
+            "tempor incididunt ut labore et dolore magna aliqua hej och tack för idag vi ses imorgon " +
+            "meeting lunch project release deploy coffee weekend question answer update").split(" ");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataGeneratorProperties properties;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, DataGeneratorProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    public static String userName(int n) {
+        return USER_PREFIX + n;
+    }
+
+    public void generate() {
+        long start = System.nanoTime();
+        Random random = new Random(properties.seed());
+        int first = Objects.requireNonNull(jdbcTemplate.queryForObject(
+                "select count(*) from user where user_name like ?", Integer.class, USER_PREFIX + "%")) + 1;
+        long firstUserId = reserveIds("user_seq", properties.users());
+        long firstMessageId = reserveIds("message_seq", properties.messages());
+
+        // User n gets id firstUserId + n - first
+        jdbcTemplate.batchUpdate("insert into user (id, user_name, first_name, last_name, email, github_id) values (?, ?, ?, ?, ?, ?)",
+                IntStream.range(first, first + properties.users()).boxed().toList(), properties.batchSize(), (statement, n) -> {
+                    statement.setLong(1, firstUserId + n - first);
+                    statement.setString(2, userName(n));
+                    statement.setString(3, capitalize(word(random)));
+                    statement.setString(4, capitalize(word(random)));
+                    statement.setString(5, userName(n) + "@example.com");
+                    statement.setInt(6, n);
+                });
+
+        double[] userWeights = cumulativeZipfWeights(properties.users(), properties.userSkew());
+        LocalDate today = LocalDate.now();
+        Timestamp translationDue = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("insert into message (id, date, last_changed, title, message_body, private_message, user_id, translation_due) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                IntStream.range(0, properties.messages()).boxed().toList(), properties.batchSize(), (statement, i) -> {
+                    LocalDate date = today.minusDays(random.nextInt(Math.max(properties.days(), 1)));
+                    boolean edited = random.nextInt(5) == 0;
+                    statement.setLong(1, firstMessageId + i);
+                    statement.setDate(2, Date.valueOf(date));
+                    statement.setDate(3, edited ? Date.valueOf(date.plusDays(random.nextInt(30))) : null);
+                    statement.setString(4, capitalize(text(random, 2 + random.nextInt(5), 255)));
+                    statement.setString(5, capitalize(text(random, Integer.MAX_VALUE, bodyLength(random))));
+                    statement.setBoolean(6, random.nextDouble() < properties.privateRatio());
+                    statement.setLong(7, firstUserId + sample(userWeights, random));
+                    // Left to the translation backfill
+                    statement.setTimestamp(8, translationDue);
+                });
+
+        log.info("Generated {} users and {} messages in {} ms", properties.users(), properties.messages(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Moves the sequence past {@code count} ids in one atomic update and returns the first of them.
+     * {@code next_val} is the highest id of the block the next caller gets, so the free ids start
+     * one allocation below the old value.
+     */
+    private long reserveIds(String sequenceTable, int count) {
+        long reserved = (long) Math.ceilDiv(count, ID_ALLOCATION_SIZE) * ID_ALLOCATION_SIZE;
+        return Objects.requireNonNull(jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update " + sequenceTable + " set next_val = last_insert_id(next_val + " + reserved + ")");
+                try (ResultSet result = statement.executeQuery("select last_insert_id()")) {
+                    result.next();
+                    return result.getLong(1) - reserved - ID_ALLOCATION_SIZE + 1;
+                }
+            }
+        }));
+    }
+
+    // Most messages are a sentence or two, a few use the whole column
+    private static int bodyLength(Random random) {
+        return (int) Math.clamp(Math.round(Math.exp(Math.log(60) + 0.8 * random.nextGaussian())), 5, 255);
+    }
+
+    private static double[] cumulativeZipfWeights(int size, double exponent) {
+        double[] weights = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            weights[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++)
+            weights[i] /= sum;
+        return weights;
+    }
+
+    private static int sample(double[] cumulativeWeights, Random random) {
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulativeWeights.length - 1);
+    }
+
+    private static String text(Random random, int maxWords, int maxLength) {
+        StringBuilder text = new StringBuilder(word(random));
+        for (int words = 1; words < maxWords; words++) {
+            String word = word(random);
+            if (text.length() + word.length() + 1 > maxLength)
+                break;
+            text.append(' ').append(word);
+        }
+        return text.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+}
@@ -0,0 +1,59 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+@EnableConfigurationProperties(TranslationPipelineProperties.class)
+public class TranslationPipelineConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TranslationPipelineConfig.class);
+
+    // Spring Boot backs off from its default executor as soon as another one is declared,
+    // so it is declared here to keep serving async MVC requests such as the message stream
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    // With spring.threads.virtual.enabled the builder starts a virtual thread per task
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor applicationTaskExecutorVirtualThreads(SimpleAsyncTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    // Bounded so an unreachable LibreTranslate can't pile up work, rejected messages are
+    // picked up by the backfill later
+    @Bean
+    public ThreadPoolTaskExecutor translationExecutor(TranslationPipelineProperties properties, Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("translation-");
+        // Kept bounded in virtual thread mode as well, it is LibreTranslate that limits how many can run
+        if (Threading.VIRTUAL.isActive(environment))
+            executor.setThreadFactory(Thread.ofVirtual().name("translation-", 0).factory());
+        executor.setCorePoolSize(properties.poolSize());
+        executor.setMaxPoolSize(properties.poolSize());
+        executor.setQueueCapacity(properties.queueCapacity());
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Translation queue is full, leaving the message to the backfill"));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+}
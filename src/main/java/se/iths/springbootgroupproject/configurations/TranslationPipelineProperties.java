@@ -0,0 +1,26 @@
+package se.iths.springbootgroupproject.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Background translation of new and edited messages.
+ *
+ * @param poolSize        worker threads calling LibreTranslate
+ * @param queueCapacity   messages waiting for a worker, messages beyond that are left to the backfill
+ * @param backfillBatch   messages due for translation picked up per backfill run
+ * @param backfillEnabled whether this node runs the backfill, with several instances only one of them should
+ * @param retryBackoff    how long a message waits after its first failed translation, doubled after every
+ *                        further failure
+ * @param maxRetryBackoff the longest a message waits between two attempts
+ */
+@ConfigurationProperties(prefix = "app.translation.pipeline")
+public record TranslationPipelineProperties(@DefaultValue("2") int poolSize,
+                                            @DefaultValue("500") int queueCapacity,
+                                            @DefaultValue("100") int backfillBatch,
+                                            @DefaultValue("true") boolean backfillEnabled,
+                                            @DefaultValue("10m") Duration retryBackoff,
+                                            @DefaultValue("1d") Duration maxRetryBackoff) {
+}
@@ -0,0 +1,123 @@
+package se.iths.springbootgroupproject.configurations.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Cache that is read from a local Caffeine cache first and from Redis second.
+ * Evictions go to both tiers and are announced so the other nodes can drop their local copies.
+ * Caches that are not shared have no Redis tier but still announce their evictions.
+ */
+public class TwoTierCache implements Cache {
+
+    private final CaffeineCache local;
+    private final Cache remote;
+    private final Consumer<String> evictionListener;
+
+    public TwoTierCache(CaffeineCache local, Cache remote, Consumer<String> evictionListener) {
+        this.local = local;
+        this.remote = remote;
+        this.evictionListener = evictionListener;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null || remote == null)
+            return value;
+        value = remote.get(key);
+        if (value != null)
+            local.put(key, value.get());
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value))
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // The local cache already lets only one thread per node load a key,
+        // so Redis is read and written directly instead of through its own locking loader
+        return local.get(key, () -> {
+            if (remote != null) {
+                ValueWrapper value = remote.get(key);
+                if (value != null)
+                    return (T) value.get();
+            }
+            T value = valueLoader.call();
+            if (remote != null)
+                remote.put(key, value);
+            return value;
+        });
+    }
+
+    // A put only fills in what the database already says, so the other nodes are not told about it
+    @Override
+    public void put(Object key, Object value) {
+        if (remote != null)
+            remote.put(key, value);
+        local.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (remote != null)
+            remote.evict(key);
+        local.evict(key);
+        evictionListener.accept(getName());
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = remote != null && remote.evictIfPresent(key);
+        present |= local.evictIfPresent(key);
+        evictionListener.accept(getName());
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        if (remote != null)
+            remote.clear();
+        local.clear();
+        evictionListener.accept(getName());
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = remote != null && remote.invalidate();
+        present |= local.invalidate();
+        evictionListener.accept(getName());
+        return present;
+    }
+
+    /**
+     * Drops this node's copies after another node evicted from the cache. The evicted keys
+     * are not sent along, so the whole local tier is cleared and refilled from Redis.
+     */
+    void clearLocal() {
+        local.clear();
+    }
+
+}
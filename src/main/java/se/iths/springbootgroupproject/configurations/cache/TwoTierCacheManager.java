@@ -0,0 +1,111 @@
+package se.iths.springbootgroupproject.configurations.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Creates {@link TwoTierCache}s and keeps the local tiers of all nodes consistent: every eviction
+ * is published on a Redis channel and the other nodes clear their local copy of that cache when
+ * they receive it. Puts and evictions are deferred until the surrounding transaction has committed,
+ * so no node can reload the old rows in between.
+ */
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCacheManager.class);
+    private static final String SEPARATOR = "|";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    private final Collection<String> cacheNames;
+    private final Function<String, CaffeineCache> localCacheFactory;
+    private final Function<String, Cache> remoteCacheFactory;
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final List<Consumer<String>> remoteEvictionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param remoteCacheFactory returns the Redis cache for a name, or {@code null} if the cache is local only
+     */
+    public TwoTierCacheManager(Collection<String> cacheNames,
+                               Function<String, CaffeineCache> localCacheFactory,
+                               Function<String, Cache> remoteCacheFactory,
+                               StringRedisTemplate redisTemplate,
+                               String channel) {
+        this.cacheNames = cacheNames;
+        this.localCacheFactory = localCacheFactory;
+        this.remoteCacheFactory = remoteCacheFactory;
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        setTransactionAware(true);
+    }
+
+    public static Function<String, Cache> sharedCaches(RedisCacheManager redisCacheManager,
+                                                       Collection<String> sharedCacheNames) {
+        return name -> sharedCacheNames.contains(name) ? redisCacheManager.getCache(name) : null;
+    }
+
+    /**
+     * @param listener told the name of a cache after another node evicted from it and the local tier was cleared
+     */
+    public void addRemoteEvictionListener(Consumer<String> listener) {
+        remoteEvictionListeners.add(listener);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return cacheNames.stream().map(this::createCache).toList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createCache(name);
+    }
+
+    private TwoTierCache createCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> new TwoTierCache(
+                localCacheFactory.apply(cacheName),
+                remoteCacheFactory.apply(cacheName),
+                this::publishEviction));
+    }
+
+    private void publishEviction(String cacheName) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + cacheName);
+        } catch (RuntimeException e) {
+            // The local eviction already happened, the other nodes catch up when their local copies expire
+            log.warn("Could not publish eviction of cache {}", cacheName, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = payload.indexOf(SEPARATOR);
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId))
+            return;
+        String cacheName = payload.substring(separator + 1);
+        TwoTierCache cache = caches.get(cacheName);
+        if (cache == null)
+            return;
+        cache.clearLocal();
+        remoteEvictionListeners.forEach(listener -> listener.accept(cacheName));
+    }
+
+}
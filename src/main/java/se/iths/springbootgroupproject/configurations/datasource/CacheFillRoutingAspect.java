@@ -0,0 +1,80 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.interceptor.CacheEvictOperation;
+import org.springframework.cache.interceptor.CacheOperation;
+import org.springframework.cache.interceptor.CacheOperationSource;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tells the {@link ReadWriteRoutingDataSource} which caches a call may fill and which it evicts. Runs
+ * around the caching interceptor: a cache hit reads nothing, so only a miss reaches the database, and an
+ * eviction has happened once the call returns.
+ */
+@Aspect
+@Order(Ordered.LOWEST_PRECEDENCE - 20)
+public class CacheFillRoutingAspect {
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final CacheOperationSource cacheOperationSource;
+
+    public CacheFillRoutingAspect(ReadWriteRoutingDataSource routingDataSource,
+                                  CacheOperationSource cacheOperationSource) {
+        this.routingDataSource = routingDataSource;
+        this.cacheOperationSource = cacheOperationSource;
+    }
+
+    @Around("@annotation(org.springframework.cache.annotation.Cacheable) " +
+            "|| @annotation(org.springframework.cache.annotation.CacheEvict) " +
+            "|| @annotation(org.springframework.cache.annotation.Caching)")
+    public Object routeCacheFills(ProceedingJoinPoint joinPoint) throws Throwable {
+        Collection<CacheOperation> operations = cacheOperationSource.getCacheOperations(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), AopUtils.getTargetClass(joinPoint.getTarget()));
+        if (operations == null)
+            return joinPoint.proceed();
+
+        List<String> filled = cacheNames(operations, CacheableOperation.class);
+        Object result = filled.isEmpty()
+                ? joinPoint.proceed()
+                : routingDataSource.fillCaches(filled, joinPoint::proceed);
+        List<String> evicted = cacheNames(operations, CacheEvictOperation.class);
+        if (!evicted.isEmpty())
+            evicted(evicted);
+        return result;
+    }
+
+    // Transaction aware caches evict once the surrounding transaction has committed, so the window starts then
+    private void evicted(List<String> cacheNames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheNames.forEach(routingDataSource::cacheEvicted);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheNames.forEach(routingDataSource::cacheEvicted);
+            }
+        });
+    }
+
+    private static List<String> cacheNames(Collection<CacheOperation> operations,
+                                           Class<? extends CacheOperation> type) {
+        return operations.stream()
+                .filter(type::isInstance)
+                .flatMap(operation -> operation.getCacheNames().stream())
+                .distinct()
+                .toList();
+    }
+
+}
@@ -0,0 +1,160 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to the replicas, round robin, and everything else
+ * to the primary. Has to sit behind a {@link LazyConnectionDataSourceProxy}: the transaction manager
+ * opens its connection before the transaction is marked read-only, and the proxy holds off fetching
+ * the real one until the first statement.
+ * <p>
+ * Replicas more than {@code maxLag} behind the primary, or whose lag can't be read, get no reads until
+ * they have caught up. Read-only transactions of a writer, as told by {@code currentWriter}, also go to
+ * the primary for {@code maxLag} after that writer's last commit, so users read their own writes. Other
+ * writers' reads are not held back, and commits without a writer, like those of background jobs, hold
+ * back nobody.
+ * <p>
+ * Reads that refill a cache go to the primary for {@code maxLag} after that cache was evicted, here or on
+ * another node, see {@link CacheFillRoutingAspect}. A replica may not have the write behind the eviction
+ * yet, and the rows it returns would be cached and served to everyone until the entry expires.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaNames;
+    private final Set<String> inSync = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Duration maxLag;
+    private final Supplier<String> currentWriter;
+    // Writers that committed within maxLag, entries expire once any replica in rotation has caught up
+    private final Cache<String, Boolean> recentWriters;
+    // Caches evicted within maxLag, and whether the current thread is filling one of them
+    private final Cache<String, Boolean> recentlyEvictedCaches;
+    private final ThreadLocal<Boolean> fillingEvictedCache = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+                                      Supplier<String> currentWriter) {
+        Map<Object, Object> targetDataSources = new HashMap<>(replicas);
+        targetDataSources.put(PRIMARY, primary);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaNames = List.copyOf(replicas.keySet());
+        this.maxLag = maxLag;
+        this.currentWriter = currentWriter;
+        this.recentWriters = Caffeine.newBuilder().expireAfterWrite(maxLag).build();
+        this.recentlyEvictedCaches = Caffeine.newBuilder().expireAfterWrite(maxLag).build();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String writer = currentWriter.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (writer != null && TransactionSynchronizationManager.isSynchronizationActive())
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(writer, Boolean.TRUE);
+                    }
+                });
+            return PRIMARY;
+        }
+        if (writer != null && recentWriters.getIfPresent(writer) != null)
+            return PRIMARY;
+        if (fillingEvictedCache.get())
+            return PRIMARY;
+
+        List<String> candidates = replicaNames.stream().filter(inSync::contains).toList();
+        if (candidates.isEmpty())
+            return PRIMARY;
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    public void cacheEvicted(String cacheName) {
+        recentlyEvictedCaches.put(cacheName, Boolean.TRUE);
+    }
+
+    /**
+     * Runs a call that may fill the given caches. Its reads go to the primary when one of the caches
+     * was evicted within {@code maxLag}, otherwise they are routed as usual.
+     */
+    public Object fillCaches(Collection<String> cacheNames, CacheFill call) throws Throwable {
+        if (fillingEvictedCache.get() || cacheNames.stream().noneMatch(name -> recentlyEvictedCaches.getIfPresent(name) != null))
+            return call.proceed();
+        fillingEvictedCache.set(Boolean.TRUE);
+        try {
+            return call.proceed();
+        } finally {
+            fillingEvictedCache.remove();
+        }
+    }
+
+    // Runs right after startup too, until then all reads go to the primary
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval:PT5S}")
+    public void checkReplicaLag() {
+        replicas.forEach((name, replica) -> {
+            Duration lag = replicationLag(name, replica);
+            boolean usable = lag != null && lag.compareTo(maxLag) <= 0;
+            if (usable ? inSync.add(name) : inSync.remove(name))
+                log.info("Replica {} {}, replication lag {}", name, usable ? "taken into rotation" : "taken out of rotation", lag);
+        });
+    }
+
+    // The replica pools are created by the configuration and are not beans of their own
+    public void close() {
+        replicas.values().forEach(replica -> {
+            if (replica instanceof HikariDataSource hikariDataSource)
+                hikariDataSource.close();
+        });
+    }
+
+    @FunctionalInterface
+    public interface CacheFill {
+        Object proceed() throws Throwable;
+    }
+
+    // Seconds_Behind_Source is null while replication is stopped or broken, and there is no row at all
+    // on a server that isn't a replica. Needs the REPLICATION CLIENT privilege
+    private static Duration replicationLag(String name, DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!status.next())
+                return null;
+            long seconds = status.getLong("Seconds_Behind_Source");
+            return status.wasNull() ? null : Duration.ofSeconds(seconds);
+        } catch (SQLException e) {
+            log.warn("Could not read the replication status of {}", name, e);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+
+/**
+ * Logs requests that run more SQL statements, or spend more time in them, than the budget allows.
+ * Optionally reports the statement count in an {@value #HEADER} header.
+ */
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-SQL-Count";
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private final int maxStatements;
+    private final Duration maxTime;
+    private final boolean responseHeader;
+
+    public SqlBudgetFilter(int maxStatements, Duration maxTime, boolean responseHeader) {
+        this.maxStatements = maxStatements;
+        this.maxTime = maxTime;
+        this.responseHeader = responseHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Statistics statistics = SqlStatementCounter.start();
+        CountHeaderResponse countHeaderResponse = responseHeader ? new CountHeaderResponse(response, statistics) : null;
+        try {
+            filterChain.doFilter(request, countHeaderResponse == null ? response : countHeaderResponse);
+        } finally {
+            SqlStatementCounter.stop();
+            if (countHeaderResponse != null)
+                countHeaderResponse.writeHeader();
+        }
+        if (statistics.statements() > maxStatements || statistics.time().compareTo(maxTime) > 0)
+            log.warn("{} {} ran {} SQL statements taking {} ms, the budget is {} statements and {} ms",
+                    request.getMethod(), request.getRequestURI(), statistics.statements(),
+                    statistics.time().toMillis(), maxStatements, maxTime.toMillis());
+    }
+
+    // The header has to be set before the response is committed, so it is written as soon as the body
+    // is opened. Views and message converters open it after the controller has returned, and with open
+    // session in view turned off no statements run after that
+    private static class CountHeaderResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatementCounter.Statistics statistics;
+        private boolean headerWritten;
+
+        CountHeaderResponse(HttpServletResponse response, SqlStatementCounter.Statistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        void writeHeader() {
+            if (headerWritten || isCommitted())
+                return;
+            headerWritten = true;
+            setIntHeader(HEADER, statistics.statements());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the statements executed on the current thread between {@link #start()} and {@link #stop()}.
+ * A batch counts as one statement, it is a single round trip to the database. Statements slower
+ * than {@code slowStatement} are logged wherever they run.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementCounter.class);
+    private static final ThreadLocal<Statistics> current = new ThreadLocal<>();
+
+    private final Duration slowStatement;
+
+    public SqlStatementCounter(Duration slowStatement) {
+        this.slowStatement = slowStatement;
+    }
+
+    public static Statistics start() {
+        Statistics statistics = new Statistics();
+        current.set(statistics);
+        return statistics;
+    }
+
+    public static void stop() {
+        current.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Statistics statistics = current.get();
+        if (statistics != null)
+            statistics.add(execInfo.getElapsedTime());
+        if (execInfo.getElapsedTime() >= slowStatement.toMillis())
+            log.warn("Slow SQL statement, {} ms: {}", execInfo.getElapsedTime(),
+                    queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")));
+    }
+
+    /**
+     * Statements of one thread, not safe to share between threads.
+     */
+    public static final class Statistics {
+
+        private int statements;
+        private long millis;
+
+        private void add(long elapsedMillis) {
+            statements++;
+            millis += elapsedMillis;
+        }
+
+        public int statements() {
+            return statements;
+        }
+
+        public Duration time() {
+            return Duration.ofMillis(millis);
+        }
+
+    }
+
+}
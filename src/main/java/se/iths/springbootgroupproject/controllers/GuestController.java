@@ -1,30 +1,50 @@
 package se.iths.springbootgroupproject.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageCursor;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.services.MessageService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Observed(name = "controller")
 @RestController
 @RequestMapping("/api/")
 public class GuestController {
 
     private final MessageService messageService;
+    private final ObjectMapper objectMapper;
 
-    public GuestController(MessageService messageService) {
+    public GuestController(MessageService messageService, ObjectMapper objectMapper) {
         this.messageService = messageService;
+        this.objectMapper = objectMapper;
     }
 
-    @Operation(summary = "Gets all the public messages including authors")
+    @Operation(summary = "Gets all the public messages including authors",
+            description = "Without after, before or size all public messages are returned. " +
+                          "With any of them a single window is returned and the neighbouring windows " +
+                          "are linked in the Link header with rel next and prev")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
                     description = "Found all public messages",
@@ -36,11 +56,64 @@ public class GuestController {
                             array = @ArraySchema(schema = @Schema(implementation = Object.class)))})
     })
     @GetMapping("messages")
-    List<MessageAndUsername> all() {
-        var messages = messageService.findAllByPrivateMessageIsFalse();
-        if (messages.isEmpty())
+    ResponseEntity<List<MessageAndUsername>> all(
+            @Parameter(description = "Cursor from a previous response, returns the messages after it")
+            @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Cursor from a previous response, returns the messages before it")
+            @RequestParam(value = "before", required = false) String before,
+            @Parameter(description = "Number of messages per window, 1 to 100")
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (after == null && before == null && size == null) {
+            var messages = messageService.findAllByPrivateMessageIsFalse();
+            if (messages.isEmpty())
+                throw new ResponseStatusException(HttpStatus.NO_CONTENT);
+            return ResponseEntity.ok(messages);
+        }
+
+        MessageWindow window = messageService.findPublicMessagesWindow(decodeCursor(after), decodeCursor(before),
+                Math.clamp(size == null ? 20 : size, 1, 100));
+        if (window.content().isEmpty())
             throw new ResponseStatusException(HttpStatus.NO_CONTENT);
-        return messages;
+
+        var response = ResponseEntity.ok();
+        if (window.hasNext())
+            response.header(HttpHeaders.LINK, link("after", window.nextCursor(), "next"));
+        if (window.hasPrevious())
+            response.header(HttpHeaders.LINK, link("before", window.previousCursor(), "prev"));
+        return response.body(window.content());
+    }
+
+    @Operation(summary = "Streams all the public messages including authors as newline delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "One public message per line",
+                    content = {@Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = MessageAndUsername.class))}
+            )
+    })
+    @GetMapping(value = "messages/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                AtomicLong written = new AtomicLong();
+                messageService.streamPublicMessages(message -> {
+                    try {
+                        generator.writeObject(message);
+                        generator.writeRaw('\n');
+                        // Get the first line to the client without waiting for the buffer to fill up
+                        if (written.incrementAndGet() == 1)
+                            generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @Operation(summary = "Gets all public messages from specific author")
@@ -62,4 +135,21 @@ public class GuestController {
         return messages;
     }
 
+    private static String link(String direction, String cursor, String rel) {
+        String uri = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after")
+                .replaceQueryParam("before")
+                .replaceQueryParam(direction, cursor)
+                .toUriString();
+        return "<" + uri + ">; rel=\"" + rel + "\"";
+    }
+
+    private static Long decodeCursor(String cursor) {
+        try {
+            return MessageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
 }
\ No newline at end of file
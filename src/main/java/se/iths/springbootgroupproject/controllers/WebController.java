@@ -1,56 +1,79 @@
 package se.iths.springbootgroupproject.controllers;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
 import se.iths.springbootgroupproject.dto.CreateMessageFormData;
 import se.iths.springbootgroupproject.dto.EditUserFormData;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageCursor;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
-import se.iths.springbootgroupproject.services.LibreTranslateService;
 import se.iths.springbootgroupproject.services.MessageService;
+import se.iths.springbootgroupproject.services.MessageTranslationService;
 import se.iths.springbootgroupproject.services.UserService;
+import se.iths.springbootgroupproject.services.github.GithubOAuth2UserService;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
+@Observed(name = "controller")
 @Controller
 @RequestMapping("/web")
 public class WebController {
 
+    private static final int USER_LIST_SIZE = 20;
+
     private final MessageService messageService;
     private final UserService userService;
-    private final LibreTranslateService libreTranslateService;
+    private final MessageTranslationService messageTranslationService;
 
     public WebController(MessageService messageService, UserService userService,
-                         LibreTranslateService libreTranslateService) {
+                         MessageTranslationService messageTranslationService) {
         this.messageService = messageService;
         this.userService = userService;
-        this.libreTranslateService = libreTranslateService;
+        this.messageTranslationService = messageTranslationService;
     }
 
     @GetMapping("/welcome")
-    public String guestPage(@RequestParam(value = "page", defaultValue = "0") String page,
+    public String guestPage(@RequestParam(value = "page", required = false) String page,
+                            @RequestParam(value = "after", required = false) String after,
+                            @RequestParam(value = "before", required = false) String before,
                             Model model,
                             HttpServletRequest httpServletRequest) {
-        int p = Integer.parseInt(page);
-        if (p < 0) p = 0;
-        List<MessageAndUsername> publicMessages = messageService.findAllByPrivateMessageIsFalse(PageRequest.of(p, 10));
-        int allPublicMessageCount = messageService.findAllByPrivateMessageIsFalse().size();
-
-        model.addAttribute("messages", publicMessages);
+        int p = 0;
+        MessageWindow publicMessages;
+        if (page != null) {
+            p = Math.max(Integer.parseInt(page), 0);
+            Page<MessageAndUsername> publicMessagesPage = messageService.findPublicMessagesPage(PageRequest.of(p, 10));
+            model.addAttribute("totalPublicMessages", publicMessagesPage.getTotalElements());
+            publicMessages = MessageWindow.of(publicMessagesPage);
+        } else
+            publicMessages = messageService.findPublicMessagesWindow(decodeCursor(after), decodeCursor(before), 10);
+
+        model.addAttribute("messages", publicMessages.content());
+        model.addAttribute("previousCursor", publicMessages.previousCursor());
+        model.addAttribute("nextCursor", publicMessages.nextCursor());
         model.addAttribute("httpServletRequest", httpServletRequest);
         model.addAttribute("currentPage", p);
-        model.addAttribute("totalPublicMessages", allPublicMessageCount);
+        model.addAttribute("languageLink", languageLink(httpServletRequest));
         return "welcome";
     }
 
@@ -62,41 +85,54 @@ public class WebController {
         int p = Integer.parseInt(page);
         if (p < 0) p = 0;
         User user = userService.findByUserName(userName).get();
-        List<MessageAndUsername> messages = messageService.findAllMessagesByUser(user, PageRequest.of(p, 10));
-        int allMessageCount = messageService.findAllMessagesByUser(user).size();
-        List<String> distinctUserNames = userService.findAll().stream().map(User::getUserName).collect(Collectors.toList());
-        distinctUserNames.add("Show All");
+        Page<MessageAndUsername> messages = messageService.findMessagesPageByUser(user, PageRequest.of(p, 10));
         List<MessageAndUsername> distinctUserMessages = messages.stream()
                 .filter(message -> message.userUserName().equals(userName))
                 .toList();
 
-        model.addAttribute("userList", distinctUserNames);
+        model.addAttribute("userList", userService.findUserNames("", USER_LIST_SIZE));
         model.addAttribute("messages", distinctUserMessages);
         model.addAttribute("currentPage", p);
         model.addAttribute("currentUser", userName);
         model.addAttribute("httpServletRequest", httpServletRequest);
-        model.addAttribute("totalPublicMessages", allMessageCount);
+        model.addAttribute("totalPublicMessages", messages.getTotalElements());
         return "messagesfromuser";
     }
 
     @GetMapping("/messages")
-    public String messagePage(@RequestParam(value = "page", defaultValue = "0") String page,
+    public String messagePage(@RequestParam(value = "page", required = false) String page,
+                              @RequestParam(value = "after", required = false) String after,
+                              @RequestParam(value = "before", required = false) String before,
                               Model model,
                               HttpServletRequest httpServletRequest) {
-        int p = Integer.parseInt(page);
-        if (p < 0) p = 0;
-        List<MessageAndUsername> messages = messageService.findAllMessages(PageRequest.of(p, 10));
-        List<String> distinctUserNames = userService.findAll().stream().map(User::getUserName).toList();
-        int allMessageCount = messageService.findAllMessages().size();
-
-        model.addAttribute("userList", distinctUserNames);
-        model.addAttribute("messages", messages);
+        int p = 0;
+        MessageWindow messages;
+        if (page != null) {
+            p = Math.max(Integer.parseInt(page), 0);
+            Page<MessageAndUsername> messagesPage = messageService.findAllMessagesPage(PageRequest.of(p, 10));
+            model.addAttribute("totalPublicMessages", messagesPage.getTotalElements());
+            messages = MessageWindow.of(messagesPage);
+        } else
+            messages = messageService.findAllMessagesWindow(decodeCursor(after), decodeCursor(before), 10);
+
+        model.addAttribute("userList", userService.findUserNames("", USER_LIST_SIZE));
+        model.addAttribute("messages", messages.content());
+        model.addAttribute("previousCursor", messages.previousCursor());
+        model.addAttribute("nextCursor", messages.nextCursor());
         model.addAttribute("httpServletRequest", httpServletRequest);
         model.addAttribute("currentPage", p);
-        model.addAttribute("totalPublicMessages", allMessageCount);
+        model.addAttribute("languageLink", languageLink(httpServletRequest));
         return "messages";
     }
 
+    // Type-ahead for the user dropdown, which only renders the first names
+    @GetMapping("/users")
+    @ResponseBody
+    public List<String> userNames(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                  @RequestParam(value = "limit", defaultValue = "" + USER_LIST_SIZE) int limit) {
+        return userService.findUserNames(prefix, limit);
+    }
+
     @GetMapping("/myprofile")
     public String userProfile(@RequestParam(value = "page", defaultValue = "0") String page,
                               Model model,
@@ -104,13 +140,12 @@ public class WebController {
                               HttpServletRequest httpServletRequest) {
         int p = Integer.parseInt(page);
         if (p < 0) p = 0;
-        User user = userService.findByGitHubId(principal.getAttribute("id"));
-        List<MessageAndUsername> messages = messageService.findAllMessagesByUser(user, PageRequest.of(p, 10));
-        int allMessageCount = messageService.findAllMessagesByUser(user).size();
+        User user = currentUser(principal);
+        Page<MessageAndUsername> messages = messageService.findMessagesPageByUser(user, PageRequest.of(p, 10));
 
-        model.addAttribute("messages", messages);
+        model.addAttribute("messages", messages.getContent());
         model.addAttribute("currentPage", p);
-        model.addAttribute("totalMessages", allMessageCount);
+        model.addAttribute("totalMessages", messages.getTotalElements());
         model.addAttribute("httpServletRequest", httpServletRequest);
         model.addAttribute("name", user.getFirstName() + " " + user.getLastName());
         model.addAttribute("userName", user.getUserName());
@@ -121,7 +156,7 @@ public class WebController {
 
     @GetMapping("/myprofile/edit")
     public String editUserProfile(Model model, @AuthenticationPrincipal OAuth2User principal) {
-        User user = userService.findByGitHubId(principal.getAttribute("id"));
+        User user = currentUser(principal);
 
         model.addAttribute("formData", new EditUserFormData(
                 user.getUserName(),
@@ -132,6 +167,34 @@ public class WebController {
         return "edituser";
     }
 
+    // The current page or cursor without lang, so switching language reloads the messages that are shown
+    private static String languageLink(HttpServletRequest request) {
+        return UriComponentsBuilder.fromPath(request.getRequestURI())
+                .query(request.getQueryString())
+                .replaceQueryParam("lang")
+                .build(true)
+                .toUriString();
+    }
+
+    private static Long decodeCursor(String cursor) {
+        try {
+            return MessageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Sessions from before the user id was added to the principal fall back to the GitHub id
+    private User currentUser(OAuth2User principal) {
+        Long userId = principal.getAttribute(GithubOAuth2UserService.USER_ID);
+        return userId != null ? userService.findById(userId) : userService.findByGitHubId(principal.getAttribute("id"));
+    }
+
+    private Long currentUserId(OAuth2User principal) {
+        Long userId = principal.getAttribute(GithubOAuth2UserService.USER_ID);
+        return userId != null ? userId : currentUser(principal).getId();
+    }
+
     private boolean checkIfUsernameAlreadyExists(String userName, User user) {
         return userService.findByUserName(userName).isPresent() && !userName.equals(user.getUserName());
     }
@@ -140,19 +203,14 @@ public class WebController {
     public String editUserProfile(@Valid @ModelAttribute("formData") EditUserFormData userForm,
                                   BindingResult bindingResult,
                                   @AuthenticationPrincipal OAuth2User principal) {
-        User user = userService.findByGitHubId(principal.getAttribute("id"));
+        User user = currentUser(principal);
 
         if (checkIfUsernameAlreadyExists(userForm.getUserName(), user))
             bindingResult.rejectValue("userName", "duplicate", "Username needs to be unique");
         if (bindingResult.hasErrors())
             return "edituser";
 
-        user.setUserName(userForm.getUserName());
-        user.setFirstName(userForm.getFirstName());
-        user.setLastName(userForm.getLastName());
-        user.setEmail(userForm.getEmail());
-        user.setImage(userForm.getImage());
-        userService.save(user);
+        userService.updateProfile(user.getId(), userForm);
         return "redirect:/web/myprofile";
     }
 
@@ -160,9 +218,8 @@ public class WebController {
     @GetMapping("/myprofile/editmessage")
     public String editMessage(Model model, @RequestParam("id") Long id, @AuthenticationPrincipal OAuth2User principal) {
         Message message = messageService.findById(id);
-        User currentUser = userService.findByGitHubId(principal.getAttribute("id"));
 
-        if (!message.getUser().getId().equals(currentUser.getId()))
+        if (!message.getUser().getId().equals(currentUserId(principal)))
             return "redirect:/web/myprofile";
 
         model.addAttribute("messageId", message.getId());
@@ -176,9 +233,8 @@ public class WebController {
     @GetMapping("/myprofile/deletemessage")
     public String deleteMessage(@RequestParam("id") Long id, @AuthenticationPrincipal OAuth2User principal) {
         Message message = messageService.findById(id);
-        User currentUser = userService.findByGitHubId(principal.getAttribute("id"));
 
-        if (!message.getUser().getId().equals(currentUser.getId()))
+        if (!message.getUser().getId().equals(currentUserId(principal)))
             return "redirect:/web/myprofile";
 
         messageService.delete(message);
@@ -217,19 +273,25 @@ public class WebController {
         if (bindingResult.hasErrors())
             return "createmessage";
 
-        User user = userService.findByGitHubId(principal.getAttribute("id"));
+        User user = currentUser(principal);
         messageService.save(messageForm.toEntity(user));
         return "redirect:/web/myprofile";
     }
 
     @GetMapping("/messages/translate")
     public String translateMessage(Model model, @RequestParam("id") Long id) {
-        Message message = messageService.findById(id);
-        String translatedTitle = libreTranslateService.translateMessage(message.getTitle());
-        String translatedMessage = libreTranslateService.translateMessage(message.getMessageBody());
+        Message message = messageService.findByIdWithUser(id);
+        List<String> translated;
+        try {
+            translated = messageTranslationService.findOrTranslate(message);
+        } catch (CallNotPermittedException | BulkheadFullException | RestClientException e) {
+            // LibreTranslate is down or busy, show the message as written instead of an error page
+            translated = List.of(Objects.toString(message.getTitle(), ""), Objects.toString(message.getMessageBody(), ""));
+            model.addAttribute("translationUnavailable", true);
+        }
 
-        model.addAttribute("title", translatedTitle);
-        model.addAttribute("message", translatedMessage);
+        model.addAttribute("title", translated.getFirst());
+        model.addAttribute("message", translated.getLast());
         model.addAttribute("userName", message.getUser().getUserName());
         model.addAttribute("date", message.getDate());
         model.addAttribute("lastChanged", message.getLastChanged());
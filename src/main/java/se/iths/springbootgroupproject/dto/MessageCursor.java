@@ -0,0 +1,39 @@
+package se.iths.springbootgroupproject.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor used for keyset pagination of message listings.
+ * Clients should treat the value as a token and never build one themselves.
+ */
+public final class MessageCursor {
+
+    private static final String PREFIX = "id:";
+
+    private MessageCursor() {
+    }
+
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the message id the cursor points at, or {@code null} if no cursor was given
+     * @throws IllegalArgumentException if the cursor is not one we issued
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank())
+            return null;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX))
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            return Long.valueOf(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+}
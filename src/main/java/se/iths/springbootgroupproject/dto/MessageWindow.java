@@ -0,0 +1,35 @@
+package se.iths.springbootgroupproject.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One window of a keyset paginated listing together with the cursors
+ * pointing at the windows before and after it.
+ */
+public record MessageWindow(List<MessageAndUsername> content, String previousCursor,
+                            String nextCursor) implements Serializable {
+
+    public static MessageWindow of(List<MessageAndUsername> content, boolean hasPrevious, boolean hasNext) {
+        if (content.isEmpty())
+            return new MessageWindow(List.of(), null, null);
+        return new MessageWindow(List.copyOf(content),
+                hasPrevious ? MessageCursor.encode(content.getFirst().id()) : null,
+                hasNext ? MessageCursor.encode(content.getLast().id()) : null);
+    }
+
+    public static MessageWindow of(Page<MessageAndUsername> page) {
+        return of(page.getContent(), page.hasPrevious(), page.hasNext());
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+}
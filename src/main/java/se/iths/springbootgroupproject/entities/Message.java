@@ -1,6 +1,7 @@
 package se.iths.springbootgroupproject.entities;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.proxy.HibernateProxy;
@@ -8,6 +9,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Setter
@@ -15,8 +17,10 @@ import java.util.Objects;
 @Entity
 @EntityListeners(AuditingEntityListener.class)
 public class Message {
+    // Each node takes a block of 50 ids at a time, so ids increase per node but not across nodes
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Long id;
     @CreatedDate
     private LocalDate date;
@@ -24,9 +28,39 @@ public class Message {
     private String title;
     private String messageBody;
     private boolean privateMessage;
+    // When the background translation should next look at the message, null once its current text is translated
+    private LocalDateTime translationDue;
+    private int translationAttempts;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Boolean privateMessageWhenLoaded;
+
+    @PostLoad
+    void rememberLoadedState() {
+        privateMessageWhenLoaded = privateMessage;
+    }
+
+    // Cached public listings can contain the message if it is public now or was public when it was loaded
+    public boolean isOrWasPublic() {
+        return !privateMessage || Boolean.FALSE.equals(privateMessageWhenLoaded);
+    }
+
+    // New messages are due straight away, however they are inserted
+    @PrePersist
+    void markNewForTranslation() {
+        if (translationDue == null)
+            translationDue = LocalDateTime.now();
+    }
+
+    // Picked up by the background translation, also when the text didn't change. It then just clears the mark
+    public void markForTranslation() {
+        translationDue = LocalDateTime.now();
+        translationAttempts = 0;
+    }
 
     @Override
     public final boolean equals(Object o) {
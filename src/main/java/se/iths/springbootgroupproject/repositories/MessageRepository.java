@@ -1,28 +1,177 @@
 package se.iths.springbootgroupproject.repositories;
 
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.data.repository.ListPagingAndSortingRepository;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends ListCrudRepository<Message, Long>, ListPagingAndSortingRepository<Message, Long> {
+    // Ordered by id so pages are stable and can be read off the (private_message, id) and
+    // (user_id, private_message, id) indexes without a filesort, see V6__.sql.
+    // Every node hands out ids from a block of its own, see Message, so id order is save order only for
+    // messages saved on the same node. A message can be listed before messages saved earlier on another
+    // node, and a reader paging forward past those doesn't get to it. Each message still shows up once
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.privateMessage = false
+            order by m.id asc
+            """)
     List<MessageAndUsername> findAllByPrivateMessageIsFalse();
 
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.privateMessage = false
+            order by m.id asc
+            """)
     List<MessageAndUsername> findAllByPrivateMessageIsFalse(Pageable pageable);
 
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.user = ?1
+            order by m.id asc
+            """)
     List<MessageAndUsername> findAllByUser(User user);
 
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.user = ?1
+            order by m.id asc
+            """)
     List<MessageAndUsername> findAllByUser(User user, Pageable pageable);
 
+    // Builds the dto in the query, mapping entities would load each author with a select of its own
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            order by m.id asc
+            """)
+    List<MessageAndUsername> findAllWithUsername();
+
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            order by m.id asc
+            """)
+    List<MessageAndUsername> findAllWithUsername(Pageable pageable);
+
+    long countByPrivateMessageIsFalse();
+
+    long countByUser(User user);
+
     Optional<Message> findByTitle(String title);
 
-    @EntityGraph(attributePaths = "user.userName")
+    // For pages that show the author, the user is loaded in the same select instead of lazily after the transaction
+    @EntityGraph(attributePaths = "user")
+    Optional<Message> findWithUserById(Long id);
+
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.user.id = ?1 and m.privateMessage = false
+            order by m.id asc
+            """)
     List<MessageAndUsername> findAllByUserIdAndPrivateMessageIsFalse(Long id);
 
+    // Keyset pagination, seeks on the primary key instead of skipping OFFSET rows
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.privateMessage = false and m.id > ?1
+            order by m.id asc
+            """)
+    List<MessageAndUsername> findPublicMessagesAfter(Long id, Limit limit);
+
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.privateMessage = false and m.id < ?1
+            order by m.id desc
+            """)
+    List<MessageAndUsername> findPublicMessagesBefore(Long id, Limit limit);
+
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.id > ?1
+            order by m.id asc
+            """)
+    List<MessageAndUsername> findMessagesAfter(Long id, Limit limit);
+
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.id < ?1
+            order by m.id desc
+            """)
+    List<MessageAndUsername> findMessagesBefore(Long id, Limit limit);
+
+    // Rows are fetched from the database in batches while the stream is consumed,
+    // requires useCursorFetch on the MySQL driver for the fetch size to take effect
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new se.iths.springbootgroupproject.dto.MessageAndUsername(
+                m.id, m.date, m.lastChanged, m.title, m.messageBody, u.userName)
+            from Message m left join m.user u
+            where m.privateMessage = false
+            order by m.id asc
+            """)
+    Stream<MessageAndUsername> streamPublicMessages();
+
+    // Read off idx_message_translation_due. Messages that keep failing are due later and later, so they
+    // don't hold back the others
+    @Query("""
+            select m.id from Message m
+            where m.translationDue <= ?1
+            order by m.translationDue
+            """)
+    List<Long> findIdsDueForTranslation(LocalDateTime now, Limit limit);
+
+    // Only while the message is still due from the save that was translated. When it was saved again
+    // in the meantime, the newer text stays due
+    @Query("""
+            update Message m set m.translationDue = null, m.translationAttempts = 0
+            where m.id = ?1 and m.translationDue = ?2
+            """)
+    @Modifying
+    @Transactional
+    int markTranslated(Long id, LocalDateTime due);
+
+    @Query("""
+            update Message m set m.translationDue = ?3, m.translationAttempts = m.translationAttempts + 1
+            where m.id = ?1 and m.translationDue = ?2
+            """)
+    @Modifying
+    @Transactional
+    int postponeTranslation(Long id, LocalDateTime due, LocalDateTime retryAt);
+
 }
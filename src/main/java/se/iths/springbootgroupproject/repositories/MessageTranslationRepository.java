@@ -0,0 +1,10 @@
+package se.iths.springbootgroupproject.repositories;
+
+import org.springframework.data.repository.ListCrudRepository;
+import se.iths.springbootgroupproject.entities.MessageTranslation;
+
+import java.util.Optional;
+
+public interface MessageTranslationRepository extends ListCrudRepository<MessageTranslation, Long> {
+    Optional<MessageTranslation> findByMessageId(Long messageId);
+}
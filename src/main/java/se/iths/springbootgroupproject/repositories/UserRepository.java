@@ -1,6 +1,7 @@
 package se.iths.springbootgroupproject.repositories;
 
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
@@ -20,6 +21,14 @@ public interface UserRepository extends ListCrudRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    // Only the names, read off the unique index on user_name. Wildcards in the prefix are escaped
+    @Query("""
+            select u.userName from User u
+            where u.userName like ?#{escape([0])}% escape ?#{escapeCharacter()}
+            order by u.userName
+            """)
+    List<String> findUserNamesStartingWith(String prefix, Limit limit);
+
     @Query("""
             update User u set u.email = ?1 where u.id = ?2
             """)
@@ -0,0 +1,36 @@
+package se.iths.springbootgroupproject.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of text content. Used as key for results that only depend on the text itself,
+ * so an edited text never hits a result computed for the old one.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String of(String... parts) {
+        MessageDigest digest = sha256();
+        for (String part : parts) {
+            if (part != null)
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+            // Separator so ("ab", "c") and ("a", "bc") don't hash the same
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -1,55 +1,95 @@
 package se.iths.springbootgroupproject.services;
 
-import org.springframework.retry.annotation.Retryable;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.util.List;
 import java.util.Objects;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+/**
+ * Calls to LibreTranslate are retried, capped in concurrency and cut off by a circuit breaker named
+ * {@value #LIBRETRANSLATE}, configured under {@code resilience4j.*.instances.libretranslate}. When the
+ * breaker is open or the bulkhead is full, calls fail fast with {@code CallNotPermittedException}
+ * or {@code BulkheadFullException}.
+ */
+@Observed(name = "service")
 @Service
 public class LibreTranslateService {
+    static final String LIBRETRANSLATE = "libretranslate";
+
     private final RestClient restClient;
 
-    public LibreTranslateService(RestClient restClient) {
-        this.restClient = restClient;
+    public LibreTranslateService(RestClient libreTranslateRestClient) {
+        this.restClient = libreTranslateRestClient;
     }
 
-    @Retryable
+    @Retry(name = LIBRETRANSLATE)
+    @CircuitBreaker(name = LIBRETRANSLATE)
+    @Bulkhead(name = LIBRETRANSLATE)
     public boolean detectMessageLanguage(String text) {
-        String isEnOrSv = Objects.requireNonNull(restClient.post()
-                .uri("http://localhost:5000/detect")
+        DetectResponse[] detections = restClient.post()
+                .uri("/detect")
                 .contentType(APPLICATION_JSON)
-                .accept()
-                .body(String.format("{\"q\":\"%s\"}", text))
+                .accept(APPLICATION_JSON)
+                .body(new DetectRequest(text))
                 .retrieve()
-                .body(String.class));
-        return !isEnOrSv.contains("\"en\"");
+                .body(DetectResponse[].class);
+        // Candidates come with the most likely language first
+        return detections == null || detections.length == 0 || !"en".equals(detections[0].language());
     }
 
-    @Retryable
-    public String translateMessage(String text) {
-        String sourceLanguage = "en";
-        String targetLanguage = "sv";
-
-        if (detectMessageLanguage(text)) {
-            sourceLanguage = "sv";
-            targetLanguage = "en";
-        }
+    /**
+     * Translates all texts of one message in a single request. The texts are assumed to be
+     * in the same language, so it is detected once for all of them. Cached by a hash of the texts,
+     * so an edited message is translated again while the old entry just expires, and concurrent
+     * requests for the same texts wait for one upstream call.
+     */
+    @Cacheable(value = "translations", keyGenerator = "contentHashKeyGenerator", sync = true)
+    @Retry(name = LIBRETRANSLATE)
+    @CircuitBreaker(name = LIBRETRANSLATE)
+    @Bulkhead(name = LIBRETRANSLATE)
+    public List<String> translateMessages(List<String> texts) {
+        if (texts.isEmpty())
+            return List.of();
+        return translate(texts, detectMessageLanguage(String.join("\n", texts)));
+    }
 
-        String jsonString = String
-                .format("{\"q\":\"%s\",\"source\":\"%s\",\"target\":\"%s\"}", text, sourceLanguage, targetLanguage);
+    private List<String> translate(List<String> texts, boolean swedish) {
+        TranslateRequest request = swedish
+                ? new TranslateRequest(texts, "sv", "en")
+                : new TranslateRequest(texts, "en", "sv");
 
-        return Objects.requireNonNull(restClient.post()
-                        .uri("http://localhost:5000/translate")
+        return List.copyOf(Objects.requireNonNull(restClient.post()
+                        .uri("/translate")
                         .contentType(APPLICATION_JSON)
-                        .accept()
-                        .body(jsonString)
+                        .accept(APPLICATION_JSON)
+                        .body(request)
                         .retrieve()
-                        .body(String.class))
-                .split(":")[1]
-                .replaceAll("[{\"}]", "");
+                        .body(TranslateResponse.class))
+                .translatedText());
+    }
+
+    record DetectRequest(String q) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record DetectResponse(String language, double confidence) {
+    }
+
+    // LibreTranslate accepts an array as q and then answers with an array of translations
+    record TranslateRequest(List<String> q, String source, String target) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record TranslateResponse(List<String> translatedText) {
     }
 
 }
@@ -0,0 +1,7 @@
+package se.iths.springbootgroupproject.services;
+
+/**
+ * Published by {@link MessageService#save} when a message is created or edited.
+ */
+public record MessageSavedEvent(Long messageId) {
+}
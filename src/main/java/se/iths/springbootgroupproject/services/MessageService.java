@@ -1,27 +1,43 @@
 package se.iths.springbootgroupproject.services;
 
+import io.micrometer.observation.annotation.Observed;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
 import se.iths.springbootgroupproject.repositories.MessageRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Reads run in read-only transactions: Hibernate skips the snapshots for dirty checking and the flush
+// on commit, and with ReadWriteRoutingConfig they may be served by a replica. Writes are marked one by one
+@Observed(name = "service")
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class MessageService {
 
     MessageRepository messageRepository;
+    ApplicationEventPublisher eventPublisher;
 
-    public MessageService(MessageRepository messageRepository) {
+    public MessageService(MessageRepository messageRepository, ApplicationEventPublisher eventPublisher) {
         this.messageRepository = messageRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Cacheable("publicMessages")
@@ -39,46 +55,95 @@ public class MessageService {
         return messageRepository.findAllByPrivateMessageIsFalse(pageable);
     }
 
+    // Page and list results share a cache, so the method name is part of the key
+    @Cacheable(value = "publicMessages", key = "{#root.methodName, #pageable}")
+    public Page<MessageAndUsername> findPublicMessagesPage(Pageable pageable) {
+        return PageableExecutionUtils.getPage(messageRepository.findAllByPrivateMessageIsFalse(pageable),
+                pageable, messageRepository::countByPrivateMessageIsFalse);
+    }
+
+    @Cacheable(value = "publicMessages", key = "{#root.methodName, #after, #before, #size}")
+    public MessageWindow findPublicMessagesWindow(Long after, Long before, int size) {
+        return findWindow(after, before, size,
+                messageRepository::findPublicMessagesAfter, messageRepository::findPublicMessagesBefore);
+    }
+
+    // Not cached, rows are handed to the consumer as they are read so memory use stays flat.
+    // Streaming needs the surrounding transaction to keep the cursor open
+    public void streamPublicMessages(Consumer<MessageAndUsername> consumer) {
+        try (Stream<MessageAndUsername> messages = messageRepository.streamPublicMessages()) {
+            messages.forEach(consumer);
+        }
+    }
+
     @Cacheable("messages")
     public List<MessageAndUsername> findAllMessages(Pageable pageable) {
-        return messageRepository.findAll(pageable).getContent().stream()
-                .map(message -> new MessageAndUsername(
-                        message.getId(),
-                        message.getDate(),
-                        message.getLastChanged(),
-                        message.getTitle(),
-                        message.getMessageBody(),
-                        message.getUser().getUserName()))
-                .toList();
+        return messageRepository.findAllWithUsername(pageable);
     }
 
     @Cacheable("messages")
     public List<MessageAndUsername> findAllMessages() {
-        return messageRepository.findAll().stream()
-                .map(message -> new MessageAndUsername(
-                        message.getId(),
-                        message.getDate(),
-                        message.getLastChanged(),
-                        message.getTitle(),
-                        message.getMessageBody(),
-                        message.getUser().getUserName()))
-                .toList();
+        return messageRepository.findAllWithUsername();
+    }
+
+    @Cacheable(value = "messages", key = "{#root.methodName, #pageable}")
+    public Page<MessageAndUsername> findAllMessagesPage(Pageable pageable) {
+        return PageableExecutionUtils.getPage(messageRepository.findAllWithUsername(pageable),
+                pageable, messageRepository::count);
+    }
+
+    @Cacheable(value = "messages", key = "{#root.methodName, #after, #before, #size}")
+    public MessageWindow findAllMessagesWindow(Long after, Long before, int size) {
+        return findWindow(after, before, size,
+                messageRepository::findMessagesAfter, messageRepository::findMessagesBefore);
     }
 
+    // A user's own messages and single messages are read in read-write transactions, which go to the
+    // primary, so users see their own edits straight away even when a replica is behind
+    @Transactional
     public List<MessageAndUsername> findAllMessagesByUser(User user, Pageable pageable) {
         return messageRepository.findAllByUser(user, pageable);
     }
 
+    @Transactional
     public List<MessageAndUsername> findAllMessagesByUser(User user) {
         return messageRepository.findAllByUser(user);
     }
 
-    @CacheEvict(value = {"messages", "publicMessages"}, allEntries = true)
+    @Transactional
+    public Page<MessageAndUsername> findMessagesPageByUser(User user, Pageable pageable) {
+        return PageableExecutionUtils.getPage(messageRepository.findAllByUser(user, pageable),
+                pageable, () -> messageRepository.countByUser(user));
+    }
+
+    // Every write changes the listings of all messages, but the public listings
+    // only when the message is or was public
+    @Caching(evict = {
+            @CacheEvict(value = "messages", allEntries = true),
+            @CacheEvict(value = "publicMessages", allEntries = true, condition = "#message.isOrWasPublic()")
+    })
+    @Transactional
     public void save(Message message) {
+        message.markForTranslation();
         messageRepository.save(message);
+        eventPublisher.publishEvent(new MessageSavedEvent(message.getId()));
+    }
+
+    // For imports: ids come from the pooled sequence and the inserts go out in JDBC batches,
+    // so a large list should be passed in chunks of a few thousand to keep the persistence context small.
+    // No event per message, that would queue a translation task for every row. The messages are marked
+    // due and the backfill translates them in batches instead
+    @Caching(evict = {
+            @CacheEvict(value = "messages", allEntries = true),
+            @CacheEvict(value = "publicMessages", allEntries = true)
+    })
+    @Transactional
+    public void saveAll(Collection<Message> messages) {
+        messages.forEach(Message::markForTranslation);
+        messageRepository.saveAll(messages);
     }
 
-    @CacheEvict(value = {"messages", "publicMessages"}, allEntries = true)
+    @Transactional
     public Message findById(Long id) {
         Optional<Message> message = messageRepository.findById(id);
         if (message.isPresent())
@@ -86,9 +151,32 @@ public class MessageService {
         throw new EntityNotFoundException();
     }
 
-    @CacheEvict(value = {"messages", "publicMessages"}, allEntries = true)
+    // Open session in view is off, so the author has to be loaded before the message leaves the service
+    public Message findByIdWithUser(Long id) {
+        return messageRepository.findWithUserById(id).orElseThrow(EntityNotFoundException::new);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(value = "messages", allEntries = true),
+            @CacheEvict(value = "publicMessages", allEntries = true, condition = "#message.isOrWasPublic()")
+    })
+    @Transactional
     public void delete(Message message) {
         messageRepository.delete(message);
     }
 
-}
\ No newline at end of file
+    // Fetches one row more than asked for to find out if there is a window beyond this one
+    private static MessageWindow findWindow(Long after, Long before, int size,
+                                            BiFunction<Long, Limit, List<MessageAndUsername>> forward,
+                                            BiFunction<Long, Limit, List<MessageAndUsername>> backward) {
+        if (before != null) {
+            List<MessageAndUsername> rows = backward.apply(before, Limit.of(size + 1));
+            List<MessageAndUsername> content = rows.subList(0, Math.min(size, rows.size())).reversed();
+            return MessageWindow.of(content, rows.size() > size, true);
+        }
+        List<MessageAndUsername> rows = forward.apply(after == null ? 0L : after, Limit.of(size + 1));
+        List<MessageAndUsername> content = rows.subList(0, Math.min(size, rows.size()));
+        return MessageWindow.of(content, after != null, rows.size() > size);
+    }
+
+}
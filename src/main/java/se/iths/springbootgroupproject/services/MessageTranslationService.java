@@ -0,0 +1,127 @@
+package se.iths.springbootgroupproject.services;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestClientException;
+import se.iths.springbootgroupproject.configurations.TranslationPipelineProperties;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.MessageTranslation;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.repositories.MessageTranslationRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Translates messages in the background when they are saved and stores the result,
+ * so showing a translation is a single lookup instead of calls to LibreTranslate.
+ */
+@Observed(name = "service")
+@Service
+public class MessageTranslationService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageTranslationService.class);
+
+    private final MessageRepository messageRepository;
+    private final MessageTranslationRepository messageTranslationRepository;
+    private final LibreTranslateService libreTranslateService;
+    private final TranslationPipelineProperties properties;
+
+    public MessageTranslationService(MessageRepository messageRepository,
+                                     MessageTranslationRepository messageTranslationRepository,
+                                     LibreTranslateService libreTranslateService,
+                                     TranslationPipelineProperties properties) {
+        this.messageRepository = messageRepository;
+        this.messageTranslationRepository = messageTranslationRepository;
+        this.libreTranslateService = libreTranslateService;
+        this.properties = properties;
+    }
+
+    // Runs after the saving transaction has committed, so the worker reads the new text
+    @Async("translationExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSaved(MessageSavedEvent event) {
+        messageRepository.findById(event.messageId()).ifPresent(this::translateAndStore);
+    }
+
+    /**
+     * @return translated title and body, from the stored translation if it was made from the current text
+     */
+    public List<String> findOrTranslate(Message message) {
+        String sourceHash = sourceHash(message);
+        return messageTranslationRepository.findByMessageId(message.getId())
+                .filter(translation -> sourceHash.equals(translation.getSourceHash()))
+                .map(translation -> List.of(translation.getTitle(), translation.getMessageBody()))
+                .orElseGet(() -> libreTranslateService.translateMessages(texts(message)));
+    }
+
+    // Picks up messages the workers had to drop, bulk inserts and messages whose translation failed,
+    // once they are due again. Runs on every node where it is enabled, see backfillEnabled
+    @Scheduled(initialDelayString = "${app.translation.pipeline.backfill-initial-delay:PT1M}",
+            fixedDelayString = "${app.translation.pipeline.backfill-delay:PT10M}")
+    public void backfill() {
+        if (!properties.backfillEnabled())
+            return;
+        List<Long> ids = messageRepository.findIdsDueForTranslation(LocalDateTime.now(),
+                Limit.of(properties.backfillBatch()));
+        if (ids.isEmpty())
+            return;
+        log.info("Backfilling translations for {} messages", ids.size());
+        messageRepository.findAllById(ids).forEach(this::translateAndStore);
+    }
+
+    void translateAndStore(Message message) {
+        String sourceHash = sourceHash(message);
+        MessageTranslation translation = messageTranslationRepository.findByMessageId(message.getId())
+                .orElseGet(MessageTranslation::new);
+        if (sourceHash.equals(translation.getSourceHash())) {
+            messageRepository.markTranslated(message.getId(), message.getTranslationDue());
+            return;
+        }
+        // LibreTranslateService retries transient failures itself, what is left is tried again by the backfill
+        try {
+            List<String> translated = libreTranslateService.translateMessages(texts(message));
+            translation.setMessageId(message.getId());
+            translation.setSourceHash(sourceHash);
+            translation.setTitle(translated.getFirst());
+            translation.setMessageBody(translated.getLast());
+            translation.setTranslatedAt(LocalDateTime.now());
+            messageTranslationRepository.save(translation);
+            messageRepository.markTranslated(message.getId(), message.getTranslationDue());
+        } catch (RestClientException | CallNotPermittedException | BulkheadFullException e) {
+            LocalDateTime retryAt = LocalDateTime.now().plus(retryBackoff(message.getTranslationAttempts()));
+            messageRepository.postponeTranslation(message.getId(), message.getTranslationDue(), retryAt);
+            log.warn("Could not translate message {}, it is translated when it is viewed and tried again after {}",
+                    message.getId(), retryAt, e);
+        } catch (DataIntegrityViolationException e) {
+            // Deleted in the meantime, or another instance stored its translation first
+            log.debug("Translation of message {} was not stored", message.getId(), e);
+        }
+    }
+
+    // Doubles with every failed attempt, so a message that can't be translated is soon only tried now and then
+    Duration retryBackoff(int attempts) {
+        Duration backoff = properties.retryBackoff().multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(properties.maxRetryBackoff()) < 0 ? backoff : properties.maxRetryBackoff();
+    }
+
+    private static List<String> texts(Message message) {
+        return List.of(Objects.toString(message.getTitle(), ""), Objects.toString(message.getMessageBody(), ""));
+    }
+
+    private static String sourceHash(Message message) {
+        return ContentHash.of(message.getTitle(), message.getMessageBody());
+    }
+
+}
@@ -1,19 +1,27 @@
 package se.iths.springbootgroupproject.services;
 
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import se.iths.springbootgroupproject.dto.EditUserFormData;
 import se.iths.springbootgroupproject.entities.User;
 import se.iths.springbootgroupproject.repositories.UserRepository;
 
 import java.util.List;
 import java.util.Optional;
 
+// Read-only unless marked otherwise, see MessageService
+@Observed(name = "service")
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class UserService {
 
+    static final int MAX_USER_NAMES = 50;
+
     private final UserRepository userRepository;
 
     public UserService(UserRepository userRepository) {
@@ -37,25 +45,68 @@ public class UserService {
         return userRepository.findByUserName(userName);
     }
 
+    // Authenticated pages look up the current user on every request. Misses are not cached, so a user
+    // created at login is found on the next request. Read-write so it is read from the primary, as login
+    // creates the user when this finds nothing
+    @Transactional
+    @Cacheable(value = "users", key = "{#root.methodName, #githubId}", unless = "#result == null")
     public User findByGitHubId(Integer githubId) {
         return userRepository.findByGithubId(githubId).orElse(null);
     }
 
+    @Cacheable(value = "users", key = "{#root.methodName, #id}", unless = "#result == null")
+    @Transactional
+    public User findById(Long id) {
+        return userRepository.findById(id).orElse(null);
+    }
+
+    // For the user dropdown and its type-ahead, the limit is capped so no request lists every user.
+    // Keyed on the normalized arguments, so requests that run the same query share one entry
+    @Cacheable(value = "userNames", key = "{T(se.iths.springbootgroupproject.services.UserService).userNamePrefix(#prefix), "
+            + "T(se.iths.springbootgroupproject.services.UserService).userNamesLimit(#limit)}")
+    public List<String> findUserNames(String prefix, int limit) {
+        return userRepository.findUserNamesStartingWith(userNamePrefix(prefix), Limit.of(userNamesLimit(limit)));
+    }
+
+    public static String userNamePrefix(String prefix) {
+        return prefix.trim();
+    }
+
+    public static int userNamesLimit(int limit) {
+        return Math.clamp(limit, 1, MAX_USER_NAMES);
+    }
+
     @Cacheable("email")
     public User findByEmail(String email) {
         return userRepository.findByEmail(email).orElse(null);
     }
 
-    @CacheEvict(value = {"email", "username"}, allEntries = true)
+    @CacheEvict(value = {"email", "username", "users"}, allEntries = true)
+    @Transactional
     public void updateEmail(String email, Long id) {
         userRepository.updateEmail(email, id);
     }
 
-    @CacheEvict(value = {"email", "username"}, allEntries = true)
+    @CacheEvict(value = {"email", "username", "users", "userNames"}, allEntries = true)
+    @Transactional
     public void save(User user) {
         userRepository.save(user);
     }
 
+    // Changes a freshly loaded user. The cached instances are shared between requests, so they are
+    // never changed in place, only evicted once the change is saved
+    @CacheEvict(value = {"email", "username", "users", "userNames"}, allEntries = true)
+    @Transactional
+    public void updateProfile(Long id, EditUserFormData form) {
+        User user = userRepository.findById(id).orElseThrow(EntityNotFoundException::new);
+        user.setUserName(form.getUserName());
+        user.setFirstName(form.getFirstName());
+        user.setLastName(form.getLastName());
+        user.setEmail(form.getEmail());
+        user.setImage(form.getImage());
+        userRepository.save(user);
+    }
+
     public List<User> findAll() {
         return userRepository.findAll();
     }
@@ -3,33 +3,43 @@ package se.iths.springbootgroupproject.services.github;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import se.iths.springbootgroupproject.entities.User;
-import se.iths.springbootgroupproject.repositories.UserRepository;
+import se.iths.springbootgroupproject.services.UserService;
 
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 @Service
 public class GithubOAuth2UserService extends DefaultOAuth2UserService {
 
-    UserRepository userRepository;
+    // Principal attribute holding the id of our own User, resolved once at login
+    public static final String USER_ID = "userId";
 
-    public GithubOAuth2UserService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    UserService userService;
+
+    public GithubOAuth2UserService(UserService userService) {
+        this.userService = userService;
     }
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
         OAuth2User oauth2User = super.loadUser(userRequest);
         Map<String, Object> attributes = oauth2User.getAttributes();
-        Optional<User> authenticatedUser = userRepository.findByGithubId((Integer) attributes.get("id"));
-        if (authenticatedUser.isEmpty()) {
-            User user = createNewUser(attributes);
-            userRepository.save(user);
+        // Going through UserService evicts the user caches when a new user signs in for the first time
+        User user = userService.findByGitHubId((Integer) attributes.get("id"));
+        if (user == null) {
+            user = createNewUser(attributes);
+            userService.save(user);
         }
-        return oauth2User;
+
+        Map<String, Object> attributesWithUserId = new HashMap<>(attributes);
+        attributesWithUserId.put(USER_ID, user.getId());
+        String userNameAttributeName = userRequest.getClientRegistration().getProviderDetails()
+                .getUserInfoEndpoint().getUserNameAttributeName();
+        return new DefaultOAuth2User(oauth2User.getAuthorities(), attributesWithUserId, userNameAttributeName);
     }
 
     private User createNewUser(Map<String, Object> attributes) {
@@ -0,0 +1,16 @@
+CREATE TABLE message_translation
+(
+    id            BIGINT AUTO_INCREMENT NOT NULL,
+    message_id    BIGINT                NOT NULL,
+    source_hash   CHAR(64)              NOT NULL,
+    title         VARCHAR(1024)         NULL,
+    message_body  VARCHAR(1024)         NULL,
+    translated_at datetime              NOT NULL,
+    CONSTRAINT pk_message_translation PRIMARY KEY (id)
+);
+
+ALTER TABLE message_translation
+    ADD CONSTRAINT uc_message_translation_message_id UNIQUE (message_id);
+
+ALTER TABLE message_translation
+    ADD CONSTRAINT FK_MESSAGE_TRANSLATION_ON_MESSAGE FOREIGN KEY (message_id) REFERENCES message (id) ON DELETE CASCADE;
\ No newline at end of file
@@ -0,0 +1,19 @@
+-- Ids are handed out by Hibernate in blocks of 50 from these tables, MySQL has no sequences.
+-- next_val is the highest id of the next block, so it starts 50 above the ids already in use
+CREATE TABLE message_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO message_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50
+FROM message;
+
+CREATE TABLE user_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO user_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50
+FROM user;
\ No newline at end of file
@@ -0,0 +1,8 @@
+-- Listings filter on private_message or user_id and page in id order. InnoDB appends the primary key
+-- to every secondary index, so the FK index on user_id already serves user_id ... order by id
+CREATE INDEX idx_message_private_message_id ON message (private_message, id);
+
+CREATE INDEX idx_message_user_id_private_message_id ON message (user_id, private_message, id);
+
+-- Looked up on every authenticated request
+CREATE INDEX idx_user_github_id ON user (github_id);
@@ -0,0 +1,16 @@
+-- Set when a message is saved, cleared once its current text is translated and pushed into the future when
+-- translating fails. The backfill reads the due messages off the index instead of hashing every message
+ALTER TABLE message
+    ADD translation_due DATETIME(6) NULL;
+
+ALTER TABLE message
+    ADD translation_attempts INT NOT NULL DEFAULT 0;
+
+-- One last full pass with the hash ContentHash computes: SHA-256 of every part followed by a zero byte
+UPDATE message m
+    LEFT JOIN message_translation t ON t.message_id = m.id
+SET m.translation_due = NOW(6)
+WHERE t.id IS NULL
+   OR t.source_hash <> SHA2(CONCAT(COALESCE(m.title, ''), CHAR(0), COALESCE(m.message_body, ''), CHAR(0)), 256);
+
+CREATE INDEX idx_message_translation_due ON message (translation_due);
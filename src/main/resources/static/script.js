@@ -15,4 +15,25 @@ document.getElementById("search-img").addEventListener("click", function () {
     } else {
         dropdownContent.style.display = "block";
     }
-});
\ No newline at end of file
+});
+
+// asks the server for usernames starting with what has been typed instead of listing every user
+let userSearch = document.getElementById("user-search");
+let userSearchTimeout;
+userSearch.addEventListener("input", function () {
+    clearTimeout(userSearchTimeout);
+    userSearchTimeout = setTimeout(function () {
+        fetch("/web/users?prefix=" + encodeURIComponent(userSearch.value))
+            .then(response => response.json())
+            .then(function (userNames) {
+                document.getElementById("user-list").replaceChildren(...userNames.map(function (userName) {
+                    let link = document.createElement("a");
+                    link.href = "/web/user?username=" + encodeURIComponent(userName);
+                    link.textContent = userName;
+                    let paragraph = document.createElement("p");
+                    paragraph.appendChild(link);
+                    return paragraph;
+                }));
+            });
+    }, 200);
+});
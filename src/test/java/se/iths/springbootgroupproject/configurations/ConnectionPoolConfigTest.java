@@ -0,0 +1,91 @@
+package se.iths.springbootgroupproject.configurations;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.env.MockEnvironment;
+import se.iths.springbootgroupproject.configurations.datasource.ReadWriteRoutingDataSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolConfigTest {
+
+    @Test
+    @DisplayName("No warning when the threads fit the pool")
+    void noWarningWhenTheThreadsFitThePool() {
+        assertTrue(ConnectionPoolConfig.poolSizeWarning("primary", 20, 102, 8).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Warns when the pool is larger than the threads that can use it")
+    void warnsWhenThePoolIsLargerThanTheThreads() {
+        assertTrue(ConnectionPoolConfig.poolSizeWarning("primary", 50, 20, 8).isPresent());
+    }
+
+    @Test
+    @DisplayName("Warns when too many threads share the pool")
+    void warnsWhenTooManyThreadsShareThePool() {
+        assertTrue(ConnectionPoolConfig.poolSizeWarning("primary", 10, 8194, 8).isPresent());
+    }
+
+    @Test
+    @DisplayName("Platform threads are bounded by Tomcat's worker threads")
+    void platformThreadsAreBoundedByTheWorkerThreads() {
+        ServerProperties server = new ServerProperties();
+        server.getTomcat().getThreads().setMax(100);
+
+        assertEquals(OptionalInt.of(100), ConnectionPoolConfig.requestThreads(server, new MockEnvironment()));
+    }
+
+    @Test
+    @DisplayName("Virtual threads are bounded by a configured connection cap")
+    void virtualThreadsAreBoundedByAConfiguredConnectionCap() {
+        ServerProperties server = new ServerProperties();
+        server.getTomcat().setMaxConnections(160);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", "true")
+                .withProperty("server.tomcat.max-connections", "160");
+
+        assertEquals(OptionalInt.of(160), ConnectionPoolConfig.requestThreads(server, environment));
+    }
+
+    @Test
+    @DisplayName("Virtual threads with Tomcat's default connection cap are not checked")
+    void virtualThreadsWithTheDefaultConnectionCapAreNotChecked() {
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+
+        assertTrue(ConnectionPoolConfig.requestThreads(new ServerProperties(), environment).isEmpty());
+    }
+
+    @Test
+    @DisplayName("The primary and every replica pool behind the read/write split are checked")
+    void everyPoolBehindTheRoutingIsChecked() {
+        HikariDataSource primary = pool("primary");
+        HikariDataSource replica = pool("replica-0");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, Map.of("replica-0", replica),
+                Duration.ofSeconds(5), () -> null);
+        routing.afterPropertiesSet();
+
+        List<String> pools = ConnectionPoolConfig.pools(new LazyConnectionDataSourceProxy(routing)).stream()
+                .map(HikariDataSource::getPoolName)
+                .sorted()
+                .toList();
+
+        assertEquals(List.of("primary", "replica-0"), pools);
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        return pool;
+    }
+
+}
@@ -0,0 +1,215 @@
+package se.iths.springbootgroupproject.configurations;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import se.iths.springbootgroupproject.configurations.datasource.ReadWriteRoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static MySQLContainer<?> primary = new MySQLContainer<>("mysql:8.3.0")
+            .withUsername("root")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCommand("--server-id=1");
+
+    @Container
+    static MySQLContainer<?> replica = new MySQLContainer<>("mysql:8.3.0")
+            .withUsername("root")
+            .withNetwork(network)
+            .withCommand("--server-id=2");
+
+    private static HikariDataSource primaryPool;
+    private static HikariDataSource replicaPool;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private String currentUser;
+
+    // Replicates from the primary's current binlog position, what the containers set up on their own stays local
+    @BeforeAll
+    static void startReplication() throws SQLException {
+        String binlogFile;
+        long binlogPosition;
+        try (Connection connection = DriverManager.getConnection(primary.getJdbcUrl(), "root", primary.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW BINARY LOG STATUS")) {
+            status.next();
+            binlogFile = status.getString("File");
+            binlogPosition = status.getLong("Position");
+        }
+        try (Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), "root", replica.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CHANGE REPLICATION SOURCE TO SOURCE_HOST = 'primary', SOURCE_PORT = 3306, " +
+                              "SOURCE_USER = 'root', SOURCE_PASSWORD = '" + primary.getPassword() + "', " +
+                              "SOURCE_LOG_FILE = '" + binlogFile + "', SOURCE_LOG_POS = " + binlogPosition + ", " +
+                              "GET_SOURCE_PUBLIC_KEY = 1");
+            statement.execute("START REPLICA");
+        }
+
+        primaryPool = pool(primary);
+        replicaPool = pool(replica);
+    }
+
+    @AfterAll
+    static void closePools() {
+        primaryPool.close();
+        replicaPool.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = new ReadWriteRoutingDataSource(primaryPool, Map.of("replica-0", replicaPool),
+                Duration.ofSeconds(2), () -> currentUser);
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    @DisplayName("Read-only transactions go to the replica and the others to the primary")
+    void readOnlyTransactionsGoToTheReplica() throws InterruptedException {
+        awaitReplicaInRotation();
+
+        assertThat(serverIdIn(readOnly)).isEqualTo(2);
+        assertThat(serverIdIn(readWrite)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A user's reads right after their commit go to the primary until the replica can have caught up")
+    void readsRightAfterACommitGoToThePrimary() throws InterruptedException {
+        awaitReplicaInRotation();
+
+        currentUser = "alice";
+        write();
+
+        assertThat(serverIdIn(readOnly)).isEqualTo(1);
+        Thread.sleep(2100);
+        assertThat(serverIdIn(readOnly)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Reads of other users still go to the replica while one user keeps writing")
+    void otherUsersReadFromTheReplicaWhileOneUserWrites() throws InterruptedException {
+        awaitReplicaInRotation();
+
+        for (int i = 0; i < 20; i++) {
+            currentUser = "alice";
+            write();
+            assertThat(serverIdIn(readOnly)).isEqualTo(1);
+
+            currentUser = "bob";
+            assertThat(serverIdIn(readOnly)).isEqualTo(2);
+            currentUser = null;
+            assertThat(serverIdIn(readOnly)).isEqualTo(2);
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    @DisplayName("Commits without a user, like those of background jobs, hold back no reads")
+    void commitsWithoutAUserHoldBackNoReads() throws InterruptedException {
+        awaitReplicaInRotation();
+
+        write();
+
+        assertThat(serverIdIn(readOnly)).isEqualTo(2);
+        currentUser = "alice";
+        assertThat(serverIdIn(readOnly)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Reads that refill a cache go to the primary until the replica can have caught up with its eviction")
+    void cacheFillsRightAfterAnEvictionGoToThePrimary() throws Throwable {
+        awaitReplicaInRotation();
+
+        routingDataSource.cacheEvicted("messages");
+
+        assertThat(routingDataSource.fillCaches(List.of("messages"), () -> serverIdIn(readOnly))).isEqualTo(1);
+        assertThat(routingDataSource.fillCaches(List.of("users"), () -> serverIdIn(readOnly))).isEqualTo(2);
+        assertThat(serverIdIn(readOnly)).isEqualTo(2);
+        Thread.sleep(2100);
+        assertThat(routingDataSource.fillCaches(List.of("messages"), () -> serverIdIn(readOnly))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A replica that has stopped replicating gets no reads")
+    void stoppedReplicaGetsNoReads() throws SQLException, InterruptedException {
+        awaitReplicaInRotation();
+        try {
+            replicaStatement("STOP REPLICA");
+            routingDataSource.checkReplicaLag();
+
+            assertThat(serverIdIn(readOnly)).isEqualTo(1);
+        } finally {
+            replicaStatement("START REPLICA");
+        }
+    }
+
+    private void write() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.execute("create table if not exists routing_test (id int)"));
+    }
+
+    private int serverIdIn(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select @@server_id", Integer.class));
+    }
+
+    // The replica reports no lag until its threads have connected to the primary
+    private void awaitReplicaInRotation() throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            routingDataSource.checkReplicaLag();
+            if (serverIdIn(readOnly) == 2)
+                return;
+            Thread.sleep(200);
+        }
+        throw new AssertionError("Replica was never taken into rotation");
+    }
+
+    private static void replicaStatement(String sql) throws SQLException {
+        try (Connection connection = replicaPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static HikariDataSource pool(MySQLContainer<?> container) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(container.getJdbcUrl());
+        dataSource.setUsername("root");
+        dataSource.setPassword(container.getPassword());
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,187 @@
+package se.iths.springbootgroupproject.configurations.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class TwoTierCacheTest {
+
+    private static final String SHARED = "shared";
+    private static final String LOCAL = "local";
+    private static final String CHANNEL = "cache-invalidation";
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.2").withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private Node node1;
+    private Node node2;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.delete(redisTemplate.keys("*"));
+        node1 = new Node();
+        node2 = new Node();
+        // The listener containers subscribe in the background
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        node1.close();
+        node2.close();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("A value loaded on one node is read from Redis on the other and kept locally there")
+    void valueLoadedOnOneNodeIsReadFromRedisOnTheOther() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(node1.cache(SHARED).get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value1");
+        assertThat(node2.cache(SHARED).get("key", () -> "value" + loads.incrementAndGet())).isEqualTo("value1");
+
+        assertThat(loads).hasValue(1);
+        assertThat(node2.local(SHARED).getIfPresent("key")).isEqualTo("value1");
+    }
+
+    @Test
+    @DisplayName("An eviction on one node removes the value from Redis and from the other node's local tier")
+    void evictionIsBroadcastToTheOtherNodes() throws InterruptedException {
+        node1.cache(SHARED).put("key", "value");
+        assertThat(node2.cache(SHARED).get("key").get()).isEqualTo("value");
+
+        node1.cache(SHARED).evict("key");
+
+        await(() -> node2.local(SHARED).getIfPresent("key") == null);
+        assertThat(node1.cache(SHARED).get("key")).isNull();
+        assertThat(node2.cache(SHARED).get("key")).isNull();
+    }
+
+    @Test
+    @DisplayName("Local only caches are not written to Redis but their evictions are still broadcast")
+    void localOnlyCachesBroadcastTheirEvictions() throws InterruptedException {
+        node1.cache(LOCAL).put("key", "value1");
+        node2.cache(LOCAL).put("key", "value2");
+        assertThat(redisTemplate.keys("test:" + LOCAL + "*")).isEmpty();
+
+        node1.cache(LOCAL).evict("key");
+
+        await(() -> node2.local(LOCAL).getIfPresent("key") == null);
+    }
+
+    @Test
+    @DisplayName("Clearing a cache removes all of its keys from Redis and no other cache's")
+    void clearingACacheRemovesAllOfItsKeys() {
+        for (int i = 0; i < 2500; i++)
+            node1.cache(SHARED).put("key" + i, "value" + i);
+        redisTemplate.opsForValue().set("test:other::key", "value");
+
+        node1.cache(SHARED).clear();
+
+        assertThat(redisTemplate.keys("test:" + SHARED + "*")).isEmpty();
+        assertThat(redisTemplate.hasKey("test:other::key")).isTrue();
+        assertThat(node2.cache(SHARED).get("key1")).isNull();
+    }
+
+    @Test
+    @DisplayName("Remote eviction listeners are told which cache another node evicted from")
+    void remoteEvictionListenersAreToldTheCache() throws InterruptedException {
+        List<String> evicted = new CopyOnWriteArrayList<>();
+        node2.cacheManager.addRemoteEvictionListener(evicted::add);
+
+        node1.cache(SHARED).evict("key");
+
+        await(() -> evicted.contains(SHARED));
+    }
+
+    @Test
+    @DisplayName("A node ignores its own eviction messages")
+    void nodeIgnoresItsOwnEvictionMessages() throws InterruptedException {
+        node1.cache(LOCAL).put("key", "value");
+        node1.cache(LOCAL).evict("other");
+        Thread.sleep(500);
+
+        assertThat(node1.local(LOCAL).getIfPresent("key")).isEqualTo("value");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            if (condition.getAsBoolean())
+                return;
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Condition was not met within 5s");
+    }
+
+    // One application instance, set up as in CachingConfig
+    private class Node {
+
+        private final TwoTierCacheManager cacheManager;
+        private final RedisMessageListenerContainer listenerContainer;
+
+        Node() {
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(RedisCacheWriter.nonLockingRedisCacheWriter(
+                            connectionFactory, BatchStrategies.scan(1000)))
+                    .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig().prefixCacheNameWith("test:"))
+                    .build();
+            redisCacheManager.initializeCaches();
+            cacheManager = new TwoTierCacheManager(List.of(SHARED, LOCAL),
+                    name -> new CaffeineCache(name, Caffeine.newBuilder().build(), true),
+                    TwoTierCacheManager.sharedCaches(redisCacheManager, List.of(SHARED)),
+                    redisTemplate,
+                    CHANNEL);
+            cacheManager.initializeCaches();
+
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(connectionFactory);
+            listenerContainer.addMessageListener(cacheManager, new ChannelTopic(CHANNEL));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        }
+
+        Cache cache(String name) {
+            return cacheManager.getCache(name);
+        }
+
+        // The manager hands out its caches wrapped in a transaction aware decorator
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local(String name) {
+            return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache(name).getNativeCache();
+        }
+
+        void close() throws Exception {
+            listenerContainer.destroy();
+        }
+
+    }
+
+}
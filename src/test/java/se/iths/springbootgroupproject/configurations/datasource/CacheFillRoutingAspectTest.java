@@ -0,0 +1,124 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.interceptor.CacheOperationSource;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import se.iths.springbootgroupproject.configurations.CachingConfig;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ContextConfiguration(classes = {CachingConfig.class, CacheFillRoutingAspectTest.Routing.class})
+@ExtendWith(SpringExtension.class)
+class CacheFillRoutingAspectTest {
+
+    @MockBean
+    ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    Listings listings;
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() throws Throwable {
+        cacheManager.getCache("messages").clear();
+        Listings.READS.set(0);
+        doAnswer(invocation -> invocation.<ReadWriteRoutingDataSource.CacheFill>getArgument(1).proceed())
+                .when(routingDataSource).fillCaches(any(), any());
+    }
+
+    @Test
+    @DisplayName("Cached reads are run as fills of their caches, and a hit reads nothing")
+    void cachedReadsAreRunAsCacheFills() throws Throwable {
+        listings.messages();
+        listings.messages();
+
+        verify(routingDataSource, times(2)).fillCaches(eq(List.of("messages")), any());
+        assertEquals(1, Listings.READS.get());
+    }
+
+    @Test
+    @DisplayName("Evictions are reported once the cache has been evicted")
+    void evictionsAreReportedAfterTheCacheWasEvicted() {
+        listings.messages();
+        doAnswer(invocation -> {
+            assertNull(cacheManager.getCache("messages").get(SimpleKey.EMPTY));
+            return null;
+        }).when(routingDataSource).cacheEvicted("messages");
+
+        listings.save();
+
+        verify(routingDataSource).cacheEvicted("messages");
+    }
+
+    @Test
+    @DisplayName("Calls that don't use a cache are left alone")
+    void callsWithoutACacheAreLeftAlone() throws Throwable {
+        listings.uncached();
+
+        verify(routingDataSource, never()).fillCaches(any(), any());
+        verify(routingDataSource, never()).cacheEvicted(anyString());
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    static class Routing {
+
+        @Bean
+        CacheFillRoutingAspect cacheFillRoutingAspect(ReadWriteRoutingDataSource routingDataSource,
+                                                      CacheOperationSource cacheOperationSource) {
+            return new CacheFillRoutingAspect(routingDataSource, cacheOperationSource);
+        }
+
+        @Bean
+        Listings listings() {
+            return new Listings();
+        }
+
+    }
+
+    static class Listings {
+
+        // Static, the test sees the proxy and not the instance behind it
+        static final AtomicInteger READS = new AtomicInteger();
+
+        @Cacheable("messages")
+        public List<String> messages() {
+            READS.incrementAndGet();
+            return List.of("message");
+        }
+
+        @Caching(evict = @CacheEvict(value = "messages", allEntries = true))
+        public void save() {
+        }
+
+        public void uncached() {
+        }
+
+    }
+
+}
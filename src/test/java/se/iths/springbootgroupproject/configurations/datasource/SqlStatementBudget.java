@@ -0,0 +1,25 @@
+package se.iths.springbootgroupproject.configurations.datasource;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement budgets for MockMvc tests. Needs SqlBudgetConfig in the context, so a real data source, with
+ * {@code app.sql-budget.enabled} and {@code app.sql-budget.response-header}.
+ */
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    // For MockMvc, reads the statement count of the request from the response header
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            String count = result.getResponse().getHeader(SqlBudgetFilter.HEADER);
+            assertThat(count).as("%s header", SqlBudgetFilter.HEADER).isNotNull();
+            assertThat(Integer.parseInt(count)).as("SQL statements").isLessThanOrEqualTo(statements);
+        };
+    }
+
+}
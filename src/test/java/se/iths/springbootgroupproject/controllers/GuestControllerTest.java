@@ -5,19 +5,32 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageCursor;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.entities.User;
 import se.iths.springbootgroupproject.services.MessageService;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = GuestController.class)
@@ -66,6 +79,62 @@ class GuestControllerTest {
                         status().isNoContent());
     }
 
+    @Test
+    @WithMockUser
+    void getWindowOfPublicMessagesWithNextLink() throws Exception {
+        when(messageService.findPublicMessagesWindow(isNull(), isNull(), eq(1)))
+                .thenReturn(MessageWindow.of(List.of(message1), false, true));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/messages").param("size", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString(message1.messageBody())),
+                        header().string("Link", containsString("after=" + MessageCursor.encode(message1.id()))),
+                        header().string("Link", containsString("rel=\"next\"")));
+    }
+
+    @Test
+    @WithMockUser
+    void getWindowOfPublicMessagesAfterCursor() throws Exception {
+        when(messageService.findPublicMessagesWindow(1L, null, 20))
+                .thenReturn(MessageWindow.of(List.of(message2), true, false));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/messages").param("after", MessageCursor.encode(1L)))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString(message2.title())),
+                        header().string("Link", containsString("rel=\"prev\"")));
+    }
+
+    @Test
+    @WithMockUser
+    void return400IfCursorIsInvalid() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/messages").param("after", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void streamPublicMessagesAsOneJsonObjectPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<MessageAndUsername> consumer = invocation.getArgument(0);
+            consumer.accept(message1);
+            consumer.accept(message2);
+            return null;
+        }).when(messageService).streamPublicMessages(any());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/messages/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_NDJSON),
+                        mvcResult -> assertThat(mvcResult.getResponse().getContentAsString().lines())
+                                .hasSize(2)
+                                .satisfiesExactly(
+                                        line -> assertThat(line).startsWith("{").contains(message1.title()),
+                                        line -> assertThat(line).startsWith("{").contains(message2.title())));
+    }
+
     @Test
     @WithMockUser
     void getAllPublicUserMessagesOfUser() throws Exception {
@@ -0,0 +1,110 @@
+package se.iths.springbootgroupproject.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.User;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.repositories.MessageTranslationRepository;
+import se.iths.springbootgroupproject.repositories.UserRepository;
+import se.iths.springbootgroupproject.services.github.GithubOAuth2UserService;
+
+import java.util.Objects;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static se.iths.springbootgroupproject.configurations.datasource.SqlStatementBudget.atMost;
+
+// Statement budgets of the busiest pages, through the real services and repositories on MySQL.
+// The caches are cleared before every test, so the budgets hold for a cold cache
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:mysql:8.3.0:///mydatabase",
+        "spring.security.oauth2.client.registration.github.client-id=test",
+        "spring.security.oauth2.client.registration.github.client-secret=test",
+        "app.sql-budget.enabled=true",
+        "app.sql-budget.response-header=true",
+        "app.translation.pipeline.backfill-enabled=false"})
+@AutoConfigureMockMvc
+class WebControllerSqlBudgetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    MessageRepository messageRepository;
+    @Autowired
+    MessageTranslationRepository messageTranslationRepository;
+    @Autowired
+    CacheManager cacheManager;
+
+    User user;
+
+    @BeforeEach
+    void setUp() {
+        messageTranslationRepository.deleteAll();
+        messageRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(Cache::clear);
+
+        // More authors and messages than fit on a page, so a query per row would show
+        for (int i = 0; i < 12; i++) {
+            User author = new User();
+            author.setUserName("user" + i);
+            author.setGithubId(i);
+            userRepository.save(author);
+            Message message = new Message();
+            message.setTitle("Title " + i);
+            message.setMessageBody("Body " + i);
+            message.setPrivateMessage(i % 3 == 0);
+            message.setUser(author);
+            messageRepository.save(message);
+            if (i == 0)
+                user = author;
+        }
+    }
+
+    @Test
+    void welcomePage() throws Exception {
+        mockMvc.perform(get("/web/welcome"))
+                .andExpectAll(status().isOk(), atMost(2));
+    }
+
+    @Test
+    void welcomePageIsServedFromTheCacheTheSecondTime() throws Exception {
+        mockMvc.perform(get("/web/welcome"));
+        mockMvc.perform(get("/web/welcome"))
+                .andExpectAll(status().isOk(), atMost(0));
+    }
+
+    @Test
+    void messagesPage() throws Exception {
+        mockMvc.perform(get("/web/messages").with(loggedIn()))
+                .andExpectAll(status().isOk(), atMost(2));
+    }
+
+    @Test
+    void profilePage() throws Exception {
+        mockMvc.perform(get("/web/myprofile").with(loggedIn()))
+                .andExpectAll(status().isOk(), atMost(3));
+    }
+
+    private RequestPostProcessor loggedIn() {
+        return oauth2Login().attributes(attributes -> {
+            attributes.put("id", user.getGithubId());
+            attributes.put(GithubOAuth2UserService.USER_ID, user.getId());
+        });
+    }
+
+}
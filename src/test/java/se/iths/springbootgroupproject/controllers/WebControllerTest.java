@@ -1,11 +1,14 @@
 package se.iths.springbootgroupproject.controllers;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -13,10 +16,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import se.iths.springbootgroupproject.configurations.SecurityConfig;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageCursor;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
-import se.iths.springbootgroupproject.services.LibreTranslateService;
 import se.iths.springbootgroupproject.services.MessageService;
+import se.iths.springbootgroupproject.services.MessageTranslationService;
 import se.iths.springbootgroupproject.services.UserService;
 import se.iths.springbootgroupproject.services.github.GithubOAuth2UserService;
 
@@ -24,15 +29,24 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(controllers = WebController.class)
+@WebMvcTest(controllers = WebController.class,
+        properties = {"app.metrics.scrape.username=prometheus", "app.metrics.scrape.password={noop}secret"})
 @Import(SecurityConfig.class)
 class WebControllerTest {
 
@@ -46,7 +60,7 @@ class WebControllerTest {
     @MockBean
     private GithubOAuth2UserService githubOAuth2UserService;
     @MockBean
-    private LibreTranslateService libreTranslateService;
+    private MessageTranslationService messageTranslationService;
 
     private MessageAndUsername message;
     private MessageAndUsername message2;
@@ -76,29 +90,109 @@ class WebControllerTest {
                         redirectedUrl("http://localhost/oauth2/authorization/github"));
     }
 
+    @Test
+    void metricsAskForTheScrapeAccount() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpectAll(
+                        status().isUnauthorized(),
+                        header().string("WWW-Authenticate", containsString("Basic")));
+    }
+
+    @Test
+    void githubUsersCantReadMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics").with(oauth2Login()))
+                .andExpect(status().isForbidden());
+    }
+
+    // The endpoint itself isn't part of the MVC slice, so getting past security ends in a 404
+    @Test
+    void scrapeAccountReadsMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus").with(httpBasic("prometheus", "secret")))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @WithMockUser
     void shouldShowAllMessagesToAuthenticated() throws Exception {
         List<MessageAndUsername> messages = List.of(message, message2);
-        when(messageService.findAllMessages(any(Pageable.class))).thenReturn(messages);
+        when(messageService.findAllMessagesWindow(isNull(), isNull(), anyInt()))
+                .thenReturn(MessageWindow.of(messages, false, true));
         mockMvc.perform(MockMvcRequestBuilders.get("/web/messages"))
                 .andExpectAll(
                         status().isOk(),
                         model().attribute("messages", messages),
+                        model().attribute("previousCursor", nullValue()),
+                        model().attribute("nextCursor", MessageCursor.encode(message2.id())),
                         view().name("messages"));
     }
 
+    @Test
+    @WithMockUser
+    void shouldSeekPastCursorWhenShowingMessages() throws Exception {
+        List<MessageAndUsername> messages = List.of(message2);
+        when(messageService.findAllMessagesWindow(1L, null, 10))
+                .thenReturn(MessageWindow.of(messages, true, false));
+        mockMvc.perform(MockMvcRequestBuilders.get("/web/messages")
+                        .param("after", MessageCursor.encode(1L)))
+                .andExpectAll(
+                        status().isOk(),
+                        model().attribute("messages", messages),
+                        model().attribute("previousCursor", MessageCursor.encode(message2.id())),
+                        model().attribute("nextCursor", nullValue()));
+    }
+
+    @Test
+    @WithMockUser
+    void invalidCursorIsBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/web/messages")
+                        .param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithAnonymousUser
     void shouldShowPublicMessagesToUnauthenticatedUser() throws Exception {
         List<MessageAndUsername> messages = List.of(message, message2);
-        when(messageService.findAllByPrivateMessageIsFalse(any(Pageable.class))).thenReturn(messages);
+        when(messageService.findPublicMessagesWindow(isNull(), isNull(), anyInt()))
+                .thenReturn(MessageWindow.of(messages, false, false));
         mockMvc.perform(MockMvcRequestBuilders.get("/web/welcome"))
                 .andExpectAll(status().isOk(),
                         model().attribute("messages", messages),
                         view().name("welcome"));
     }
 
+    @Test
+    @WithAnonymousUser
+    void shouldFallBackToPageNumberWhenPageIsGiven() throws Exception {
+        List<MessageAndUsername> messages = List.of(message, message2);
+        when(messageService.findPublicMessagesPage(any(Pageable.class))).thenReturn(new PageImpl<>(messages));
+        mockMvc.perform(MockMvcRequestBuilders.get("/web/welcome").param("page", "0"))
+                .andExpectAll(status().isOk(),
+                        model().attribute("messages", messages),
+                        model().attribute("totalPublicMessages", 2L),
+                        view().name("welcome"));
+    }
+
+    @Test
+    @WithAnonymousUser
+    void languageLinksKeepTheCurrentCursor() throws Exception {
+        String cursor = MessageCursor.encode(message2.id());
+        when(messageService.findPublicMessagesWindow(eq(message2.id()), isNull(), anyInt()))
+                .thenReturn(MessageWindow.of(List.of(message), true, false));
+        mockMvc.perform(MockMvcRequestBuilders.get("/web/welcome?after=" + cursor))
+                .andExpectAll(status().isOk(),
+                        content().string(containsString("href=\"/web/welcome?after=" + cursor + "&amp;lang=sv\"")));
+    }
+
+    @Test
+    @WithAnonymousUser
+    void languageLinksKeepThePageNumber() throws Exception {
+        when(messageService.findPublicMessagesPage(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(message)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/web/welcome?page=3"))
+                .andExpectAll(status().isOk(),
+                        content().string(containsString("href=\"/web/welcome?page=3&amp;lang=en\"")));
+    }
+
     @Test
     void authenticatedUserAccessTheirProfile() throws Exception {
         User user = new User();
@@ -108,9 +202,11 @@ class WebControllerTest {
         user.setLastName("Pellsson");
         user.setImage("/img.jpg");
         when(userService.findByGitHubId(any())).thenReturn(user);
+        when(messageService.findMessagesPageByUser(any(), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(message)));
         mockMvc.perform(MockMvcRequestBuilders.get("/web/myprofile")
                         .with(oauth2Login()))
                 .andExpectAll(
+                        model().attribute("totalMessages", 1L),
                         model().attribute("name", user.getFirstName() + " " + user.getLastName()),
                         model().attribute("email", user.getEmail()),
                         model().attribute("userName", user.getUserName()),
@@ -152,6 +248,26 @@ class WebControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @WithMockUser
+    void profileEditIsSavedWithoutChangingTheCachedUser() throws Exception {
+        User user = new User();
+        user.setId(1L);
+        user.setUserName("oldUser");
+        when(userService.findByGitHubId(any())).thenReturn(user);
+        mockMvc.perform(post("/web/myprofile/edit").with(csrf())
+                        .param("userName", "newUser")
+                        .param("firstName", "don")
+                        .param("lastName", "derp")
+                        .param("email", "new@new.se")
+                        .param("image", "https://example.com/new.png")
+                        .with(oauth2Login()))
+                .andExpect(redirectedUrl("/web/myprofile"));
+
+        verify(userService).updateProfile(eq(1L), any());
+        assertThat(user.getUserName()).isEqualTo("oldUser");
+    }
+
     @Test
     @WithMockUser
     void authenticatedUserEditMessageOkAndContentIsApplied() throws Exception {
@@ -175,6 +291,38 @@ class WebControllerTest {
                         });
     }
 
+    @Test
+    void ownershipIsCheckedAgainstTheUserIdFromLoginWithoutLookingUpTheUser() throws Exception {
+        Message message = new Message();
+        message.setId(1L);
+        message.setTitle("Title");
+        message.setMessageBody("My message body");
+        User user = new User();
+        user.setId(7L);
+        message.setUser(user);
+        when(messageService.findById(any())).thenReturn(message);
+        mockMvc.perform(get("/web/myprofile/editmessage")
+                        .with(oauth2Login().attributes(attributes -> attributes.put(GithubOAuth2UserService.USER_ID, 7L)))
+                        .param("id", message.getId().toString()))
+                .andExpectAll(
+                        status().isOk(),
+                        view().name("editmessage"));
+        verify(userService, never()).findByGitHubId(any());
+        verify(userService, never()).findById(any());
+    }
+
+    @Test
+    void userSearchReturnsMatchingUsernamesAsJson() throws Exception {
+        when(userService.findUserNames("pe", 5)).thenReturn(List.of("Pelle", "Petra"));
+        mockMvc.perform(get("/web/users").with(oauth2Login())
+                        .param("prefix", "pe")
+                        .param("limit", "5"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0]").value("Pelle"),
+                        jsonPath("$[1]").value("Petra"));
+    }
+
     @Test
     @WithMockUser
     void shouldRedirectWhenUserWantToCreateMessage() throws Exception {
@@ -238,6 +386,64 @@ class WebControllerTest {
                         redirectedUrl("/web/myprofile/editmessage?id=" + id));
     }
 
+    @Test
+    @WithMockUser
+    void showsTranslationOfTitleAndBody() throws Exception {
+        Message message = new Message();
+        message.setId(1L);
+        message.setTitle("Title");
+        message.setMessageBody("My message body");
+        User user = new User();
+        user.setUserName("Pelle2k");
+        message.setUser(user);
+        when(messageService.findByIdWithUser(1L)).thenReturn(message);
+        when(messageTranslationService.findOrTranslate(message)).thenReturn(List.of("Titel", "Mitt meddelande"));
+        mockMvc.perform(get("/web/messages/translate").param("id", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        model().attribute("title", "Titel"),
+                        model().attribute("message", "Mitt meddelande"),
+                        view().name("translatemessage"));
+    }
+
+    @Test
+    @WithMockUser
+    void showsOriginalTextWhenTranslationIsUnavailable() throws Exception {
+        Message message = new Message();
+        message.setId(1L);
+        message.setTitle("Title");
+        message.setMessageBody("My message body");
+        message.setUser(new User());
+        when(messageService.findByIdWithUser(1L)).thenReturn(message);
+        when(messageTranslationService.findOrTranslate(message)).thenThrow(
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("libretranslate")));
+        mockMvc.perform(get("/web/messages/translate").param("id", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        model().attribute("title", "Title"),
+                        model().attribute("message", "My message body"),
+                        model().attribute("translationUnavailable", true),
+                        view().name("translatemessage"));
+    }
+
+    @Test
+    @WithMockUser
+    void messageWithoutBodyIsShownAsEmptyWhenTranslationIsUnavailable() throws Exception {
+        Message message = new Message();
+        message.setId(1L);
+        message.setTitle("Title");
+        message.setUser(new User());
+        when(messageService.findByIdWithUser(1L)).thenReturn(message);
+        when(messageTranslationService.findOrTranslate(message)).thenThrow(
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("libretranslate")));
+        mockMvc.perform(get("/web/messages/translate").param("id", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        model().attribute("title", "Title"),
+                        model().attribute("message", ""),
+                        model().attribute("translationUnavailable", true));
+    }
+
     @Test
     void forbiddenActionIfNotAuthenticated() throws Exception {
         mockMvc.perform(post("/web/myprofile/editmessage")
@@ -0,0 +1,155 @@
+package se.iths.springbootgroupproject.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestClient;
+import se.iths.springbootgroupproject.configurations.CachingConfig;
+import se.iths.springbootgroupproject.configurations.SecurityConfig;
+import se.iths.springbootgroupproject.configurations.TranslationPipelineProperties;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.User;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.repositories.MessageTranslationRepository;
+import se.iths.springbootgroupproject.services.LibreTranslateService;
+import se.iths.springbootgroupproject.services.MessageService;
+import se.iths.springbootgroupproject.services.MessageTranslationService;
+import se.iths.springbootgroupproject.services.UserService;
+import se.iths.springbootgroupproject.services.github.GithubOAuth2UserService;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The translate page with the real translation services and caches, only LibreTranslate is stubbed.
+ */
+@WebMvcTest(controllers = WebController.class)
+@Import({SecurityConfig.class, CachingConfig.class, MessageTranslationService.class, LibreTranslateService.class,
+        WebControllerTranslationTest.LibreTranslateStub.class})
+class WebControllerTranslationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MockRestServiceServer libreTranslate;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private LibreTranslateStub libreTranslateStub;
+
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private MessageService messageService;
+    @MockBean
+    private GithubOAuth2UserService githubOAuth2UserService;
+    @MockBean
+    private MessageRepository messageRepository;
+    @MockBean
+    private MessageTranslationRepository messageTranslationRepository;
+    @MockBean
+    private TranslationPipelineProperties translationPipelineProperties;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUserName("Pelle2k");
+        Message message = new Message();
+        message.setId(1L);
+        message.setTitle("Hej");
+        message.setMessageBody("Hur mår du?");
+        message.setUser(user);
+        when(messageService.findByIdWithUser(1L)).thenReturn(message);
+        libreTranslate.reset();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        libreTranslateStub.callingThreads.clear();
+    }
+
+    @Test
+    void messageIsShownUntranslatedWhenLibreTranslateFails() throws Exception {
+        libreTranslate.expect(requestTo("http://libretranslate/detect")).andRespond(withServerError());
+
+        mockMvc.perform(get("/web/messages/translate").param("id", "1").with(oauth2Login()))
+                .andExpectAll(
+                        status().isOk(),
+                        model().attribute("translationUnavailable", true),
+                        model().attribute("title", "Hej"),
+                        model().attribute("message", "Hur mår du?"));
+        libreTranslate.verify();
+    }
+
+    // The cache loads in the calling thread, so LibreTranslate is called with the request's
+    // transaction, security context and observation still in place
+    @Test
+    void translationIsLoadedInTheRequestThread() throws Exception {
+        libreTranslate.expect(requestTo("http://libretranslate/detect"))
+                .andRespond(withSuccess("[{\"confidence\":90.0,\"language\":\"sv\"}]", APPLICATION_JSON));
+        libreTranslate.expect(requestTo("http://libretranslate/translate"))
+                .andRespond(withSuccess("{\"translatedText\":[\"Hi\",\"How are you?\"]}", APPLICATION_JSON));
+
+        mockMvc.perform(get("/web/messages/translate").param("id", "1").with(oauth2Login()))
+                .andExpect(status().isOk());
+
+        assertThat(libreTranslateStub.callingThreads).containsOnly(Thread.currentThread());
+    }
+
+    @Test
+    void translationIsCachedForTheNextView() throws Exception {
+        libreTranslate.expect(once(), requestTo("http://libretranslate/detect"))
+                .andRespond(withSuccess("[{\"confidence\":90.0,\"language\":\"sv\"}]", APPLICATION_JSON));
+        libreTranslate.expect(once(), requestTo("http://libretranslate/translate"))
+                .andRespond(withSuccess("{\"translatedText\":[\"Hi\",\"How are you?\"]}", APPLICATION_JSON));
+
+        for (int view = 0; view < 2; view++)
+            mockMvc.perform(get("/web/messages/translate").param("id", "1").with(oauth2Login()))
+                    .andExpectAll(
+                            status().isOk(),
+                            model().attribute("title", "Hi"),
+                            model().attribute("message", "How are you?"));
+        libreTranslate.verify();
+    }
+
+    @TestConfiguration
+    static class LibreTranslateStub {
+
+        private final List<Thread> callingThreads = new CopyOnWriteArrayList<>();
+        private final RestClient.Builder builder = RestClient.builder()
+                .baseUrl("http://libretranslate")
+                .requestInterceptor((request, body, execution) -> {
+                    callingThreads.add(Thread.currentThread());
+                    return execution.execute(request, body);
+                });
+
+        @Bean
+        MockRestServiceServer libreTranslateServer() {
+            return MockRestServiceServer.bindTo(builder).build();
+        }
+
+        @Bean
+        RestClient libreTranslateRestClient(MockRestServiceServer libreTranslateServer) {
+            return builder.build();
+        }
+
+    }
+
+}
@@ -5,7 +5,9 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MessageTest {
 
@@ -34,4 +36,32 @@ class MessageTest {
         assertEquals(message.hashCode(), message.hashCode());
     }
 
+    @Test
+    @DisplayName("New private message is not and was not public")
+    void newPrivateMessageIsNotAndWasNotPublic() {
+        message.setPrivateMessage(true);
+
+        assertFalse(message.isOrWasPublic());
+    }
+
+    @Test
+    @DisplayName("Message loaded as public and made private was public")
+    void messageLoadedAsPublicAndMadePrivateWasPublic() {
+        message.setPrivateMessage(false);
+        message.rememberLoadedState();
+        message.setPrivateMessage(true);
+
+        assertTrue(message.isOrWasPublic());
+    }
+
+    @Test
+    @DisplayName("Message loaded as private and made public is public")
+    void messageLoadedAsPrivateAndMadePublicIsPublic() {
+        message.setPrivateMessage(true);
+        message.rememberLoadedState();
+        message.setPrivateMessage(false);
+
+        assertTrue(message.isOrWasPublic());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package se.iths.springbootgroupproject.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import se.iths.springbootgroupproject.TestSpringbootGroupProjectApplication;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput of platform and virtual thread request handling on a database bound page and on
+ * the translate page, where LibreTranslate is replaced by an HTTP stub that answers after a fixed time.
+ * Translations are not kept in the cache, so the translate page keeps calling the stub, with concurrent
+ * requests for the same message still waiting for one call.
+ * Run with {@code mvn test -Pload}, concurrency and duration can be set with -Dload.concurrency and -Dload.seconds.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.security.oauth2.client.registration.github.client-id=load-test",
+        "spring.security.oauth2.client.registration.github.client-secret=load-test",
+        "app.translation.pipeline.backfill-initial-delay=PT1H",
+        "app.cache.specs[translations].maximum-size=0"})
+@Import({TestSpringbootGroupProjectApplication.class, LoadTestSecurityConfig.class})
+abstract class AbstractThreadingLoadTest {
+
+    static final int CONCURRENCY = Integer.getInteger("load.concurrency", 400);
+    static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+    static final Duration TRANSLATION_LATENCY = Duration.ofMillis(200);
+
+    // Shared by the contexts of both thread models and left running until the test JVM exits
+    static final LibreTranslateStub libreTranslate = LibreTranslateStub.start(TRANSLATION_LATENCY);
+
+    @LocalServerPort
+    int port;
+
+    private final LoadDriver loadDriver = new LoadDriver();
+
+    @DynamicPropertySource
+    static void libreTranslate(DynamicPropertyRegistry registry) {
+        registry.add("app.libretranslate.base-url", libreTranslate::baseUrl);
+    }
+
+    @Test
+    void welcomePage() {
+        report(run("/web/welcome", Map.of()));
+    }
+
+    @Test
+    void translatePage() {
+        report(run("/web/messages/translate?id=1", LoadTestSecurityConfig.asGithubUser(1)));
+    }
+
+    private LoadResult run(String path, Map<String, String> headers) {
+        URI uri = URI.create("http://localhost:" + port + path);
+        // Warm up connections, caches and the JIT before measuring
+        loadDriver.run(path, uri, headers, CONCURRENCY, Duration.ofSeconds(5));
+        return loadDriver.run(getClass().getSimpleName() + " " + path, uri, headers, CONCURRENCY, DURATION);
+    }
+
+    private static void report(LoadResult result) {
+        System.out.println(result);
+        assertThat(result.requests()).isPositive();
+        assertThat(result.errors()).isZero();
+    }
+
+}
@@ -0,0 +1,98 @@
+package se.iths.springbootgroupproject.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.iths.springbootgroupproject.TestSpringbootGroupProjectApplication;
+import se.iths.springbootgroupproject.configurations.DataGeneratorProperties;
+import se.iths.springbootgroupproject.configurations.SyntheticDataGenerator;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency of the main pages and the API against a seeded database, reported as p50/p95/p99 per endpoint.
+ * Run with {@code mvn test -Pload -Dtest=EndpointLoadTest}. Data volume and load can be set with
+ * -Dload.users, -Dload.messages, -Dload.concurrency and -Dload.seconds.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.security.oauth2.client.registration.github.client-id=load-test",
+        "spring.security.oauth2.client.registration.github.client-secret=load-test",
+        "app.translation.pipeline.backfill-initial-delay=PT1H"})
+@Import({TestSpringbootGroupProjectApplication.class, LoadTestSecurityConfig.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointLoadTest {
+
+    static final int USERS = Integer.getInteger("load.users", 2_000);
+    static final int MESSAGES = Integer.getInteger("load.messages", 100_000);
+    static final int CONCURRENCY = Integer.getInteger("load.concurrency", 50);
+    static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 30));
+
+    @LocalServerPort
+    int port;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final LoadDriver loadDriver = new LoadDriver();
+    private final List<LoadResult> results = new ArrayList<>();
+
+    record Endpoint(String path, Map<String, String> headers) {
+        @Override
+        public String toString() {
+            return path + (headers.isEmpty() ? "" : " (logged in)");
+        }
+    }
+
+    static Stream<Endpoint> endpoints() {
+        // gen-user-1 is the user with the most messages
+        Map<String, String> heaviestUser = LoadTestSecurityConfig.asGithubUser(1);
+        return Stream.of(
+                new Endpoint("/web/welcome", Map.of()),
+                new Endpoint("/web/messages", heaviestUser),
+                new Endpoint("/web/user?username=" + SyntheticDataGenerator.userName(1), heaviestUser),
+                new Endpoint("/web/myprofile", heaviestUser),
+                new Endpoint("/api/messages?size=20", Map.of()),
+                new Endpoint("/api/messages", Map.of()));
+    }
+
+    @BeforeAll
+    void seed() {
+        new SyntheticDataGenerator(jdbcTemplate,
+                new DataGeneratorProperties(USERS, MESSAGES, 0.25, 1.1, 1095, 1000, 42)).generate();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("endpoints")
+    void endpoint(Endpoint endpoint) {
+        URI uri = URI.create("http://localhost:" + port + endpoint.path());
+        loadDriver.run(endpoint.toString(), uri, endpoint.headers(), CONCURRENCY, Duration.ofSeconds(5));
+        LoadResult result = loadDriver.run(endpoint.toString(), uri, endpoint.headers(), CONCURRENCY, DURATION);
+        results.add(result);
+
+        assertThat(result.requests()).isPositive();
+        assertThat(result.errors()).isZero();
+    }
+
+    @AfterAll
+    void report() {
+        System.out.printf("%d users, %d messages, %d concurrent clients for %ds%n",
+                USERS, MESSAGES, CONCURRENCY, DURATION.toSeconds());
+        results.forEach(System.out::println);
+    }
+
+}
@@ -0,0 +1,76 @@
+package se.iths.springbootgroupproject.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Stands in for LibreTranslate over HTTP and answers every request after a fixed delay, so requests go
+ * through the RestClient, its connection pool, the translations cache and the bulkhead as in production.
+ * Every request is handled on a virtual thread of its own, so the stub itself is never the bottleneck.
+ */
+final class LibreTranslateStub {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final Duration latency;
+
+    private LibreTranslateStub(Duration latency) throws IOException {
+        this.latency = latency;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/detect", exchange -> respond(exchange, "[{\"confidence\":90.0,\"language\":\"sv\"}]"));
+        server.createContext("/translate", exchange -> respond(exchange, translation(exchange.getRequestBody())));
+        server.start();
+    }
+
+    static LibreTranslateStub start(Duration latency) {
+        try {
+            return new LibreTranslateStub(latency);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the LibreTranslate stub", e);
+        }
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    // One translation per text, in the shape LibreTranslate answers an array of texts with
+    private String translation(InputStream body) throws IOException {
+        List<String> translated = new ArrayList<>();
+        for (JsonNode text : objectMapper.readTree(body).path("q"))
+            translated.add("[en] " + text.asText());
+        return objectMapper.writeValueAsString(new Translation(translated));
+    }
+
+    private void respond(HttpExchange exchange, String json) throws IOException {
+        try (exchange) {
+            Thread.sleep(latency);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Translation(List<String> translatedText) {
+    }
+
+}
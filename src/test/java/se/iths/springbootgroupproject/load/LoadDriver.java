@@ -0,0 +1,84 @@
+package se.iths.springbootgroupproject.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed loop HTTP load generator: a fixed number of clients send requests back to back for a
+ * given time. Every client runs on its own virtual thread, so the driver itself is never the bottleneck.
+ */
+final class LoadDriver {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    LoadResult run(String name, URI uri, Map<String, String> headers, int concurrency, Duration duration) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET();
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<ClientResult>> clients = new ArrayList<>(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++)
+                clients.add(executor.submit(() -> runClient(request, deadline)));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        long errors = 0;
+        List<long[]> latencies = new ArrayList<>(concurrency);
+        for (Future<ClientResult> client : clients) {
+            ClientResult result = client.resultNow();
+            errors += result.errors();
+            latencies.add(result.latencies());
+        }
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new LoadResult(name, sorted.length, errors, elapsed,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99));
+    }
+
+    private ClientResult runClient(HttpRequest request, long deadline) throws InterruptedException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < deadline) {
+            long sent = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400)
+                    errors++;
+            } catch (IOException e) {
+                errors++;
+            }
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = System.nanoTime() - sent;
+        }
+        return new ClientResult(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private static Duration percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0)
+            return Duration.ZERO;
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.clamp(index, 0, sorted.length - 1)]);
+    }
+
+    private record ClientResult(long[] latencies, long errors) {
+    }
+
+}
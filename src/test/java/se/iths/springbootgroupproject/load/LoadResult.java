@@ -0,0 +1,17 @@
+package se.iths.springbootgroupproject.load;
+
+import java.time.Duration;
+
+record LoadResult(String name, long requests, long errors, Duration elapsed, Duration p50, Duration p95, Duration p99) {
+
+    double throughput() {
+        return requests / (elapsed.toNanos() / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %8d requests %6d errors %9.1f req/s  p50 %5d ms  p95 %5d ms  p99 %5d ms",
+                name, requests, errors, throughput(), p50.toMillis(), p95.toMillis(), p99.toMillis());
+    }
+
+}
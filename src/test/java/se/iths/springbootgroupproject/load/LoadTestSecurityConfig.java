@@ -0,0 +1,72 @@
+package se.iths.springbootgroupproject.load;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.web.filter.OncePerRequestFilter;
+import se.iths.springbootgroupproject.configurations.SyntheticDataGenerator;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stands in for the GitHub login during load tests. Requests with a {@value #USER_HEADER} header are
+ * authenticated as the GitHub user with that id, the same way the OAuth2 login would, without a session.
+ * Requests without the header go through the application's own security configuration.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+class LoadTestSecurityConfig {
+
+    static final String USER_HEADER = "X-Load-Test-User";
+
+    static Map<String, String> asGithubUser(int githubId) {
+        return Map.of(USER_HEADER, String.valueOf(githubId));
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    SecurityFilterChain loadTestSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(request -> request.getHeader(USER_HEADER) != null)
+                .addFilterBefore(new GithubUserHeaderFilter(), AuthorizationFilter.class)
+                .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable)
+                .build();
+    }
+
+    private static final class GithubUserHeaderFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            Integer githubId = Integer.valueOf(request.getHeader(USER_HEADER));
+            DefaultOAuth2User user = new DefaultOAuth2User(AuthorityUtils.createAuthorityList("OAUTH2_USER"),
+                    Map.of("id", githubId, "login", SyntheticDataGenerator.userName(githubId)), "id");
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(new OAuth2AuthenticationToken(user, user.getAuthorities(), "github"));
+            SecurityContextHolder.setContext(context);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+    }
+
+}
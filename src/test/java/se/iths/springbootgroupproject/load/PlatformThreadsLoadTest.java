@@ -0,0 +1,7 @@
+package se.iths.springbootgroupproject.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadTest extends AbstractThreadingLoadTest {
+}
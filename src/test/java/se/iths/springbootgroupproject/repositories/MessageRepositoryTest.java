@@ -1,22 +1,31 @@
 package se.iths.springbootgroupproject.repositories;
 
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.TestPropertySource;
+import se.iths.springbootgroupproject.dto.MessageAndUsername;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
-@TestPropertySource(properties = {"spring.datasource.url=jdbc:tc:mysql:8.3.0:///mydatabase"})
+@TestPropertySource(properties = {"spring.datasource.url=jdbc:tc:mysql:8.3.0:///mydatabase",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
 class MessageRepositoryTest {
     @Autowired
     MessageRepository messageRepository;
@@ -122,6 +131,48 @@ class MessageRepositoryTest {
         assertThat(result.getFirst().id()).isEqualTo(message.getId());
     }
 
+    @Test
+    @DisplayName("findAllByPrivateMessageIsFalse with Pageable returns pages in id order")
+    void findAllByPrivateMessageIsFalseWithPageableReturnsPagesInIdOrder() {
+        var message = new Message();
+        var message2 = new Message();
+        var message3 = new Message();
+        entityManager.persist(message);
+        entityManager.persist(message2);
+        entityManager.persist(message3);
+
+        var firstPage = messageRepository.findAllByPrivateMessageIsFalse(PageRequest.of(0, 2));
+        var secondPage = messageRepository.findAllByPrivateMessageIsFalse(PageRequest.of(1, 2));
+
+        assertThat(firstPage).extracting(MessageAndUsername::id).containsExactly(message.getId(), message2.getId());
+        assertThat(secondPage).extracting(MessageAndUsername::id).containsExactly(message3.getId());
+    }
+
+    @Test
+    @DisplayName("findAllWithUsername loads messages and their authors with a single statement")
+    void findAllWithUsernameLoadsMessagesAndAuthorsWithASingleStatement() {
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUserName("author" + i);
+            entityManager.persist(user);
+            for (int j = 0; j < 2; j++) {
+                var message = new Message();
+                message.setUser(user);
+                entityManager.persist(message);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var result = messageRepository.findAllWithUsername(PageRequest.of(0, 10));
+
+        assertThat(result).hasSize(6).extracting(MessageAndUsername::userUserName).doesNotContainNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
     @Test
     @DisplayName("findAllByUser returns list with MessageAndUsername dto")
     void findAllByUserReturnsListWithMessageAndUsernameDto() {
@@ -169,6 +220,98 @@ class MessageRepositoryTest {
         assertThat(result.getFirst().id()).isEqualTo(message.getId());
     }
 
+    @Test
+    @DisplayName("countByPrivateMessageIsFalse counts only public messages")
+    void countByPrivateMessageIsFalseCountsOnlyPublicMessages() {
+        var message = new Message();
+        message.setPrivateMessage(false);
+        var message2 = new Message();
+        message2.setPrivateMessage(true);
+        var message3 = new Message();
+        message3.setPrivateMessage(false);
+        entityManager.persist(message);
+        entityManager.persist(message2);
+        entityManager.persist(message3);
+
+        var result = messageRepository.countByPrivateMessageIsFalse();
+
+        assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("countByUser counts only messages from that user")
+    void countByUserCountsOnlyMessagesFromThatUser() {
+        User user = new User();
+        User user2 = new User();
+        entityManager.persist(user);
+        entityManager.persist(user2);
+        var message = new Message();
+        message.setUser(user);
+        var message2 = new Message();
+        message2.setUser(user2);
+        var message3 = new Message();
+        message3.setUser(user);
+        entityManager.persist(message);
+        entityManager.persist(message2);
+        entityManager.persist(message3);
+
+        var result = messageRepository.countByUser(user);
+
+        assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("findPublicMessagesAfter seeks past the given id in ascending order")
+    void findPublicMessagesAfterSeeksPastTheGivenId() {
+        var message = new Message();
+        var message2 = new Message();
+        message2.setPrivateMessage(true);
+        var message3 = new Message();
+        var message4 = new Message();
+        entityManager.persist(message);
+        entityManager.persist(message2);
+        entityManager.persist(message3);
+        entityManager.persist(message4);
+
+        var result = messageRepository.findPublicMessagesAfter(message.getId(), Limit.of(1));
+
+        assertThat(result).hasSize(1);
+        assertThat(result.getFirst().id()).isEqualTo(message3.getId());
+    }
+
+    @Test
+    @DisplayName("findMessagesBefore seeks before the given id in descending order")
+    void findMessagesBeforeSeeksBeforeTheGivenId() {
+        var message = new Message();
+        var message2 = new Message();
+        message2.setPrivateMessage(true);
+        var message3 = new Message();
+        entityManager.persist(message);
+        entityManager.persist(message2);
+        entityManager.persist(message3);
+
+        var result = messageRepository.findMessagesBefore(message3.getId(), Limit.of(5));
+
+        assertThat(result).extracting(MessageAndUsername::id).containsExactly(message2.getId(), message.getId());
+    }
+
+    @Test
+    @DisplayName("findWithUserById loads the author along with the message")
+    void findWithUserByIdLoadsTheAuthorAlongWithTheMessage() {
+        User user = new User();
+        user.setUserName("author");
+        entityManager.persist(user);
+        var message = new Message();
+        message.setUser(user);
+        entityManager.persist(message);
+        entityManager.flush();
+        entityManager.clear();
+
+        var result = messageRepository.findWithUserById(message.getId());
+
+        assertThat(result).hasValueSatisfying(found -> assertThat(Hibernate.isInitialized(found.getUser())).isTrue());
+    }
+
     @Test
     @DisplayName("Finding a message by title returns message with that id")
     void findingAMessageByTitleReturnsMessageWithThatId() {
@@ -208,4 +351,80 @@ class MessageRepositoryTest {
         assertThat(result.getLast().id()).isEqualTo(message3.getId());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Messages due for translation are returned soonest due first, translated and later ones are not")
+    void findIdsDueForTranslationReturnsDueMessagesSoonestFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        var later = messageDueAt(now.minusMinutes(1));
+        var sooner = messageDueAt(now.minusHours(1));
+        messageDueAt(now.plusHours(1));
+        messageDueAt(null);
+        entityManager.flush();
+
+        var result = messageRepository.findIdsDueForTranslation(now, Limit.of(10));
+
+        assertThat(result).containsExactly(sooner.getId(), later.getId());
+    }
+
+    @Test
+    @DisplayName("A translation only clears the mark of the save it was made for")
+    void markTranslatedKeepsAMessageSavedAgainDue() {
+        LocalDateTime translatedSave = LocalDateTime.now().minusMinutes(1).truncatedTo(ChronoUnit.MICROS);
+        var message = messageDueAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        entityManager.flush();
+
+        assertThat(messageRepository.markTranslated(message.getId(), translatedSave)).isZero();
+        assertThat(messageRepository.markTranslated(message.getId(), message.getTranslationDue())).isOne();
+    }
+
+    @Test
+    @DisplayName("A failed translation moves the message back and counts the attempt")
+    void postponeTranslationMovesTheMessageBack() {
+        LocalDateTime due = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        var message = messageDueAt(due);
+        entityManager.flush();
+
+        messageRepository.postponeTranslation(message.getId(), due, due.plusMinutes(10));
+        entityManager.clear();
+
+        var postponed = entityManager.find(Message.class, message.getId());
+        assertThat(postponed.getTranslationDue()).isEqualTo(due.plusMinutes(10));
+        assertThat(postponed.getTranslationAttempts()).isOne();
+    }
+
+    @Test
+    @DisplayName("A new message is due for translation even when saved straight through the repository")
+    void newMessageIsDueForTranslation() {
+        var message = messageRepository.save(new Message());
+
+        assertThat(message.getTranslationDue()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Listings are in id order, which is not save order for messages saved on different nodes")
+    void listingsAreInIdOrderNotSaveOrderAcrossNodes() {
+        var first = entityManager.persist(new Message());
+        // Another node saves a message from the next block of ids before this node saves its second message
+        long otherNodeId = first.getId() + 100;
+        entityManager.getEntityManager()
+                .createNativeQuery("insert into message (id, private_message) values (?1, false)")
+                .setParameter(1, otherNodeId)
+                .executeUpdate();
+        var later = entityManager.persistAndFlush(new Message());
+
+        var result = messageRepository.findMessagesAfter(first.getId() - 1, Limit.of(10));
+
+        assertThat(result).extracting(MessageAndUsername::id)
+                .containsExactly(first.getId(), later.getId(), otherNodeId);
+        // A reader already past the other node's message doesn't see the later one when paging on
+        assertThat(messageRepository.findMessagesAfter(otherNodeId, Limit.of(10))).isEmpty();
+    }
+
+    // Set after persisting, since a new message is always due
+    private Message messageDueAt(LocalDateTime due) {
+        var message = entityManager.persist(new Message());
+        message.setTranslationDue(due);
+        return message;
+    }
+
+}
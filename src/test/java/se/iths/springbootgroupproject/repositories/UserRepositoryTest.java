@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.TestPropertySource;
 import se.iths.springbootgroupproject.entities.User;
 
@@ -159,6 +160,18 @@ class UserRepositoryTest {
         assertThat(entityManager.find(User.class, user.getId()).getEmail()).isEqualTo(newEmail);
     }
 
+    @Test
+    @DisplayName("findUserNamesStartingWith returns sorted names and treats wildcards literally")
+    void findUserNamesStartingWithReturnsSortedNamesAndTreatsWildcardsLiterally() {
+        for (String username : List.of("bob", "bea", "anna", "b_x")) {
+            var user = initUser(username);
+            entityManager.persist(user);
+        }
+
+        assertThat(userRepository.findUserNamesStartingWith("b", Limit.of(2))).containsExactly("b_x", "bea");
+        assertThat(userRepository.findUserNamesStartingWith("b_", Limit.of(10))).containsExactly("b_x");
+    }
+
     @NotNull
     private static User initUser(String username) {
         User user = new User();
@@ -0,0 +1,30 @@
+package se.iths.springbootgroupproject.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ContentHashTest {
+
+    @Test
+    @DisplayName("Same text gives the same hash")
+    void sameTextGivesTheSameHash() {
+        assertEquals(ContentHash.of("Hello world"), ContentHash.of("Hello world"));
+        assertEquals(64, ContentHash.of("Hello world").length());
+    }
+
+    @Test
+    @DisplayName("Edited text gives a new hash")
+    void editedTextGivesANewHash() {
+        assertNotEquals(ContentHash.of("Hello world"), ContentHash.of("Hello world!"));
+    }
+
+    @Test
+    @DisplayName("Parts are hashed separately")
+    void partsAreHashedSeparately() {
+        assertNotEquals(ContentHash.of("ab", "c"), ContentHash.of("a", "bc"));
+    }
+
+}
@@ -0,0 +1,127 @@
+package se.iths.springbootgroupproject.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import se.iths.springbootgroupproject.configurations.CachingConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@ContextConfiguration(classes = {CachingConfig.class, LibreTranslateService.class,
+        LibreTranslateServiceCachingTest.LibreTranslateStub.class})
+@ExtendWith(SpringExtension.class)
+class LibreTranslateServiceCachingTest {
+
+    private static final List<String> MESSAGE = List.of("Hej", "Hur mår du?");
+    private static final List<String> TRANSLATED = List.of("Hi", "How are you?");
+
+    @Autowired
+    LibreTranslateService libreTranslateService;
+    @Autowired
+    MockRestServiceServer server;
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        server.reset();
+        cacheManager.getCache("translations").clear();
+    }
+
+    @Test
+    @DisplayName("Equal content is translated once and then served from the cache")
+    void equalContentIsServedFromTheCache() {
+        expectOneTranslation("Hi", "How are you?");
+
+        assertEquals(TRANSLATED, libreTranslateService.translateMessages(MESSAGE));
+        assertEquals(TRANSLATED, libreTranslateService.translateMessages(new ArrayList<>(MESSAGE)));
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Edited content is translated again")
+    void editedContentIsTranslatedAgain() {
+        expectOneTranslation("Hi", "How are you?");
+        expectOneTranslation("Hi", "Edited");
+
+        libreTranslateService.translateMessages(MESSAGE);
+        assertEquals(List.of("Hi", "Edited"), libreTranslateService.translateMessages(List.of("Hej", "Redigerat")));
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Concurrent requests for the same content reach LibreTranslate once")
+    void concurrentRequestsReachLibreTranslateOnce() throws Exception {
+        expectOneTranslation("Hi", "How are you?");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return libreTranslateService.translateMessages(MESSAGE);
+                }));
+            start.countDown();
+        }
+
+        for (Future<List<String>> result : results)
+            assertEquals(TRANSLATED, result.get());
+        server.verify();
+    }
+
+    private void expectOneTranslation(String title, String body) {
+        server.expect(once(), requestTo("http://libretranslate/detect"))
+                .andRespond(withSuccess("[{\"confidence\":90.0,\"language\":\"sv\"}]", APPLICATION_JSON));
+        server.expect(once(), requestTo("http://libretranslate/translate"))
+                .andRespond(withSuccess("{\"translatedText\":[\"" + title + "\",\"" + body + "\"]}", APPLICATION_JSON));
+    }
+
+    // Slow enough that the concurrent callers all ask for the translation while it is being loaded
+    @Configuration
+    static class LibreTranslateStub {
+
+        private final RestClient.Builder builder = RestClient.builder()
+                .baseUrl("http://libretranslate")
+                .requestInterceptor((request, body, execution) -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return execution.execute(request, body);
+                });
+
+        @Bean
+        MockRestServiceServer libreTranslateServer() {
+            return MockRestServiceServer.bindTo(builder).build();
+        }
+
+        @Bean
+        RestClient libreTranslateRestClient(MockRestServiceServer libreTranslateServer) {
+            return builder.build();
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package se.iths.springbootgroupproject.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.HttpMethod.POST;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class LibreTranslateServiceTest {
+
+    private MockRestServiceServer server;
+    private LibreTranslateService libreTranslateService;
+
+    @BeforeEach
+    void setUp() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://libretranslate");
+        server = MockRestServiceServer.bindTo(builder).build();
+        libreTranslateService = new LibreTranslateService(builder.build());
+    }
+
+    @Test
+    @DisplayName("Text with quotes, colons and newlines is sent and read back intact")
+    void textIsSerializedAndParsed() {
+        String title = "Hej \"du\": hur mår du?";
+        String body = "Bra\ntack";
+        server.expect(requestTo("http://libretranslate/detect"))
+                .andExpect(method(POST))
+                .andExpect(jsonPath("$.q").value(title + "\n" + body))
+                .andRespond(withSuccess("[{\"confidence\":92.0,\"language\":\"sv\"}]", APPLICATION_JSON));
+        server.expect(requestTo("http://libretranslate/translate"))
+                .andExpect(method(POST))
+                .andExpect(jsonPath("$.q[0]").value(title))
+                .andExpect(jsonPath("$.q[1]").value(body))
+                .andExpect(jsonPath("$.source").value("sv"))
+                .andExpect(jsonPath("$.target").value("en"))
+                .andRespond(withSuccess("{\"translatedText\":[\"Hi \\\"you\\\": how are you?\",\"Good\\nthanks\"]}",
+                        APPLICATION_JSON));
+
+        List<String> translated = libreTranslateService.translateMessages(List.of(title, body));
+
+        assertEquals(List.of("Hi \"you\": how are you?", "Good\nthanks"), translated);
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("English text is translated to Swedish")
+    void englishTextIsTranslatedToSwedish() {
+        server.expect(requestTo("http://libretranslate/detect"))
+                .andRespond(withSuccess("[{\"confidence\":88.0,\"language\":\"en\"}]", APPLICATION_JSON));
+        server.expect(requestTo("http://libretranslate/translate"))
+                .andExpect(jsonPath("$.source").value("en"))
+                .andExpect(jsonPath("$.target").value("sv"))
+                .andRespond(withSuccess("{\"translatedText\":[\"Hej\"],\"detectedLanguage\":null}", APPLICATION_JSON));
+
+        assertEquals(List.of("Hej"), libreTranslateService.translateMessages(List.of("Hello")));
+        server.verify();
+    }
+
+}
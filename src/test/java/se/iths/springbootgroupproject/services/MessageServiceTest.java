@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -19,11 +20,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import se.iths.springbootgroupproject.dto.MessageAndUsername;
+import se.iths.springbootgroupproject.dto.MessageCursor;
+import se.iths.springbootgroupproject.dto.MessageWindow;
 import se.iths.springbootgroupproject.entities.Message;
 import se.iths.springbootgroupproject.entities.User;
 import se.iths.springbootgroupproject.repositories.MessageRepository;
@@ -35,6 +41,8 @@ class MessageServiceTest {
     @MockBean
     MessageRepository messageRepository;
 
+    ApplicationEventPublisher eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
     private MessageService messageService;
     private User user = new User();
     private User user2 = new User();
@@ -43,7 +51,7 @@ class MessageServiceTest {
 
     @BeforeEach
     void setUp() {
-        messageService = new MessageService(messageRepository);
+        messageService = new MessageService(messageRepository, eventPublisher);
 
         user.setEmail("test.ing@testing.com");
         user.setFirstName("Test");
@@ -127,92 +135,177 @@ class MessageServiceTest {
     @Test
     @DisplayName("Find all messages")
     void findAllMessages() {
-        when(messageRepository.findAll()).thenReturn(new ArrayList<>());
+        when(messageRepository.findAllWithUsername()).thenReturn(new ArrayList<>());
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages();
 
-        verify(messageRepository).findAll();
+        verify(messageRepository).findAllWithUsername();
         assertTrue(actualFindAllMessagesResult.isEmpty());
     }
 
     @Test
     @DisplayName("Find all messages with one message")
     void findAllMessagesWithOneMessage() {
-        ArrayList<Message> messageList = new ArrayList<>();
-        messageList.add(message);
-        when(messageRepository.findAll()).thenReturn(messageList);
+        List<MessageAndUsername> messageList = List.of(messageAndUsername(1L));
+        when(messageRepository.findAllWithUsername()).thenReturn(messageList);
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages();
 
-        verify(messageRepository).findAll();
+        verify(messageRepository).findAllWithUsername();
         assertEquals(1, actualFindAllMessagesResult.size());
     }
 
     @Test
     @DisplayName("Find all messages with two messages")
     void findAllMessagesWithTwoMessages() {
-        ArrayList<Message> messageList = new ArrayList<>();
-        messageList.add(message2);
-        messageList.add(message);
-        when(messageRepository.findAll()).thenReturn(messageList);
+        List<MessageAndUsername> messageList = List.of(messageAndUsername(1L), messageAndUsername(2L));
+        when(messageRepository.findAllWithUsername()).thenReturn(messageList);
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages();
 
-        verify(messageRepository).findAll();
+        verify(messageRepository).findAllWithUsername();
         assertEquals(2, actualFindAllMessagesResult.size());
     }
 
     @Test
     @DisplayName("Find all messages and encountering EntityNotFoundException")
     void findAllMessagesAndEncounteringEntityNotFoundException() {
-        when(messageRepository.findAll()).thenThrow(new EntityNotFoundException("An error occurred"));
+        when(messageRepository.findAllWithUsername()).thenThrow(new EntityNotFoundException("An error occurred"));
 
         assertThrows(EntityNotFoundException.class, () -> messageService.findAllMessages());
-        verify(messageRepository).findAll();
+        verify(messageRepository).findAllWithUsername();
     }
 
     @Test
     @DisplayName("Find all messages with pagination")
     void findAllMessagesWithPagination() {
-        when(messageRepository.findAll(Mockito.<Pageable>any())).thenReturn(new PageImpl<>(new ArrayList<>()));
+        when(messageRepository.findAllWithUsername(Mockito.<Pageable>any())).thenReturn(new ArrayList<>());
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages(null);
 
-        verify(messageRepository).findAll((Pageable) isNull());
+        verify(messageRepository).findAllWithUsername((Pageable) isNull());
         assertTrue(actualFindAllMessagesResult.isEmpty());
     }
 
     @Test
     @DisplayName("Find all messages with pagination and one message")
     void findAllMessagesWithPaginationAndOneMessage() {
-        ArrayList<Message> content = new ArrayList<>();
-        content.add(message);
-        PageImpl<Message> pageImpl = new PageImpl<>(content);
-        when(messageRepository.findAll(Mockito.<Pageable>any())).thenReturn(pageImpl);
+        List<MessageAndUsername> content = List.of(messageAndUsername(1L));
+        when(messageRepository.findAllWithUsername(Mockito.<Pageable>any())).thenReturn(content);
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages(null);
 
-        verify(messageRepository).findAll((Pageable) isNull());
+        verify(messageRepository).findAllWithUsername((Pageable) isNull());
         assertEquals(1, actualFindAllMessagesResult.size());
     }
 
     @Test
     @DisplayName("Find all messages with pagination and two messages")
     void findAllMessagesWithPaginationAndTwoMessages() {
-        ArrayList<Message> content = new ArrayList<>();
-        content.add(message2);
-        content.add(message);
-        PageImpl<Message> pageImpl = new PageImpl<>(content);
-        when(messageRepository.findAll(Mockito.<Pageable>any())).thenReturn(pageImpl);
+        List<MessageAndUsername> content = List.of(messageAndUsername(2L), messageAndUsername(1L));
+        when(messageRepository.findAllWithUsername(Mockito.<Pageable>any())).thenReturn(content);
         List<MessageAndUsername> actualFindAllMessagesResult = messageService.findAllMessages(null);
 
-        verify(messageRepository).findAll((Pageable) isNull());
+        verify(messageRepository).findAllWithUsername((Pageable) isNull());
         assertEquals(2, actualFindAllMessagesResult.size());
     }
 
     @Test
     @DisplayName("Find all messages with pagination and encountering EntityNotFoundException")
     void findAllMessagesWithPaginationAndEncounteringEntityNotFoundException() {
-        when(messageRepository.findAll(Mockito.<Pageable>any()))
+        when(messageRepository.findAllWithUsername(Mockito.<Pageable>any()))
                 .thenThrow(new EntityNotFoundException("An error occurred"));
 
         assertThrows(EntityNotFoundException.class, () -> messageService.findAllMessages(null));
-        verify(messageRepository).findAll((Pageable) isNull());
+        verify(messageRepository).findAllWithUsername((Pageable) isNull());
+    }
+
+    @Test
+    @DisplayName("Find page of public messages uses count query for total")
+    void findPageOfPublicMessagesUsesCountQueryForTotal() {
+        List<MessageAndUsername> content = List.of(
+                new MessageAndUsername(2L, message2.getDate(), message2.getLastChanged(), message2.getTitle(),
+                        message2.getMessageBody(), user2.getUserName()));
+        when(messageRepository.findAllByPrivateMessageIsFalse(Mockito.<Pageable>any())).thenReturn(content);
+        when(messageRepository.countByPrivateMessageIsFalse()).thenReturn(11L);
+        Page<MessageAndUsername> actualPage = messageService.findPublicMessagesPage(PageRequest.of(0, 1));
+
+        verify(messageRepository).countByPrivateMessageIsFalse();
+        assertEquals(content, actualPage.getContent());
+        assertEquals(11L, actualPage.getTotalElements());
+        assertEquals(11, actualPage.getTotalPages());
+    }
+
+    @Test
+    @DisplayName("Find page of public messages skips count query when first page is not full")
+    void findPageOfPublicMessagesSkipsCountQueryWhenFirstPageIsNotFull() {
+        when(messageRepository.findAllByPrivateMessageIsFalse(Mockito.<Pageable>any())).thenReturn(new ArrayList<>());
+        Page<MessageAndUsername> actualPage = messageService.findPublicMessagesPage(PageRequest.of(0, 10));
+
+        verify(messageRepository, Mockito.never()).countByPrivateMessageIsFalse();
+        assertEquals(0L, actualPage.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Find page of all messages")
+    void findPageOfAllMessages() {
+        Pageable pageable = PageRequest.of(0, 2);
+        when(messageRepository.findAllWithUsername(pageable)).thenReturn(List.of(messageAndUsername(1L), messageAndUsername(2L)));
+        when(messageRepository.count()).thenReturn(12L);
+        Page<MessageAndUsername> actualPage = messageService.findAllMessagesPage(pageable);
+
+        assertEquals(2, actualPage.getContent().size());
+        assertEquals("Testy", actualPage.getContent().getFirst().userUserName());
+        assertEquals(12L, actualPage.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Find by id with user throws when the message does not exist")
+    void findByIdWithUserThrowsWhenTheMessageDoesNotExist() {
+        when(messageRepository.findWithUserById(Mockito.<Long>any())).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> messageService.findByIdWithUser(1L));
+    }
+
+    @Test
+    @DisplayName("Find page of messages by user")
+    void findPageOfMessagesByUser() {
+        when(messageRepository.findAllByUser(Mockito.<User>any(), Mockito.<Pageable>any())).thenReturn(new ArrayList<>());
+        Page<MessageAndUsername> actualPage = messageService.findMessagesPageByUser(user, PageRequest.of(0, 10));
+
+        verify(messageRepository).findAllByUser(isA(User.class), isA(Pageable.class));
+        assertTrue(actualPage.isEmpty());
+    }
+
+    @Test
+    @DisplayName("First window of public messages has next cursor when more rows exist")
+    void firstWindowOfPublicMessagesHasNextCursorWhenMoreRowsExist() {
+        List<MessageAndUsername> rows = List.of(messageAndUsername(1L), messageAndUsername(2L), messageAndUsername(3L));
+        when(messageRepository.findPublicMessagesAfter(0L, Limit.of(3))).thenReturn(rows);
+        MessageWindow actualWindow = messageService.findPublicMessagesWindow(null, null, 2);
+
+        assertEquals(rows.subList(0, 2), actualWindow.content());
+        assertNull(actualWindow.previousCursor());
+        assertEquals(MessageCursor.encode(2L), actualWindow.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Window of public messages after cursor has previous but no next cursor on last rows")
+    void windowOfPublicMessagesAfterCursorOnLastRows() {
+        List<MessageAndUsername> rows = List.of(messageAndUsername(3L));
+        when(messageRepository.findPublicMessagesAfter(2L, Limit.of(3))).thenReturn(rows);
+        MessageWindow actualWindow = messageService.findPublicMessagesWindow(2L, null, 2);
+
+        assertEquals(rows, actualWindow.content());
+        assertEquals(MessageCursor.encode(3L), actualWindow.previousCursor());
+        assertFalse(actualWindow.hasNext());
+    }
+
+    @Test
+    @DisplayName("Window of all messages before cursor is returned in ascending order")
+    void windowOfAllMessagesBeforeCursorIsReturnedInAscendingOrder() {
+        List<MessageAndUsername> rows = List.of(messageAndUsername(4L), messageAndUsername(3L), messageAndUsername(2L));
+        when(messageRepository.findMessagesBefore(5L, Limit.of(3))).thenReturn(rows);
+        MessageWindow actualWindow = messageService.findAllMessagesWindow(null, 5L, 2);
+
+        assertEquals(List.of(messageAndUsername(3L), messageAndUsername(4L)), actualWindow.content());
+        assertEquals(MessageCursor.encode(3L), actualWindow.previousCursor());
+        assertEquals(MessageCursor.encode(4L), actualWindow.nextCursor());
     }
 
     @Test
@@ -276,6 +369,34 @@ class MessageServiceTest {
         assertEquals(user2, message2.getUser());
     }
 
+    @Test
+    @DisplayName("Saving a message publishes an event for the translation pipeline")
+    void savingAMessagePublishesEvent() {
+        messageService.save(message2);
+
+        verify(eventPublisher).publishEvent(new MessageSavedEvent(2L));
+    }
+
+    @Test
+    @DisplayName("Saving a message marks it for translation with a fresh count of attempts")
+    void savingAMessageMarksItForTranslation() {
+        message2.setTranslationAttempts(3);
+
+        messageService.save(message2);
+
+        assertNotNull(message2.getTranslationDue());
+        assertEquals(0, message2.getTranslationAttempts());
+    }
+
+    @Test
+    @DisplayName("Saving several messages saves them in one call and leaves them to the backfill")
+    void saveAllMessages() {
+        messageService.saveAll(List.of(message, message2));
+
+        verify(messageRepository).saveAll(List.of(message, message2));
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     @DisplayName("Save a message and encountering EntityNotFoundException")
     void saveMessageAndEncounteringEntityNotFoundException() {
@@ -339,4 +460,9 @@ class MessageServiceTest {
         verify(messageRepository).findAllByUserIdAndPrivateMessageIsFalse(isA(Long.class));
     }
 
+    private MessageAndUsername messageAndUsername(Long id) {
+        return new MessageAndUsername(id, message.getDate(), null, message.getTitle(), message.getMessageBody(),
+                user.getUserName());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package se.iths.springbootgroupproject.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.ResourceAccessException;
+import se.iths.springbootgroupproject.configurations.TranslationPipelineProperties;
+import se.iths.springbootgroupproject.entities.Message;
+import se.iths.springbootgroupproject.entities.MessageTranslation;
+import se.iths.springbootgroupproject.repositories.MessageRepository;
+import se.iths.springbootgroupproject.repositories.MessageTranslationRepository;
+
+@ContextConfiguration(classes = {MessageTranslationService.class})
+@ExtendWith(SpringExtension.class)
+class MessageTranslationServiceTest {
+
+    @MockBean
+    MessageRepository messageRepository;
+    @MockBean
+    MessageTranslationRepository messageTranslationRepository;
+    @MockBean
+    LibreTranslateService libreTranslateService;
+    @MockBean
+    TranslationPipelineProperties translationPipelineProperties;
+
+    private MessageTranslationService messageTranslationService;
+    private Message message = new Message();
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        TranslationPipelineProperties properties = new TranslationPipelineProperties(1, 10, 10, true,
+                Duration.ofMinutes(10), Duration.ofDays(1));
+        messageTranslationService = new MessageTranslationService(messageRepository, messageTranslationRepository,
+                libreTranslateService, properties);
+
+        message.setId(1L);
+        message.setTitle("Greeting");
+        message.setMessageBody("Hello");
+        message.setTranslationDue(DUE);
+    }
+
+    @Test
+    @DisplayName("Saved message is translated and stored")
+    void savedMessageIsTranslatedAndStored() {
+        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.empty());
+        when(libreTranslateService.translateMessages(List.of("Greeting", "Hello"))).thenReturn(List.of("Hälsning", "Hej"));
+
+        messageTranslationService.onMessageSaved(new MessageSavedEvent(1L));
+
+        ArgumentCaptor<MessageTranslation> stored = ArgumentCaptor.forClass(MessageTranslation.class);
+        verify(messageTranslationRepository).save(stored.capture());
+        assertEquals(1L, stored.getValue().getMessageId());
+        assertEquals("Hälsning", stored.getValue().getTitle());
+        assertEquals("Hej", stored.getValue().getMessageBody());
+        assertEquals(ContentHash.of("Greeting", "Hello"), stored.getValue().getSourceHash());
+        verify(messageRepository).markTranslated(1L, DUE);
+    }
+
+    @Test
+    @DisplayName("Unchanged message is not translated again")
+    void unchangedMessageIsNotTranslatedAgain() {
+        MessageTranslation translation = new MessageTranslation();
+        translation.setSourceHash(ContentHash.of("Greeting", "Hello"));
+        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.of(translation));
+
+        messageTranslationService.onMessageSaved(new MessageSavedEvent(1L));
+
+        verify(libreTranslateService, never()).translateMessages(anyList());
+        verify(messageTranslationRepository, never()).save(any());
+        verify(messageRepository).markTranslated(1L, DUE);
+    }
+
+    @Test
+    @DisplayName("Failed translation is left to the backfill without storing anything or retrying again")
+    void failedTranslationIsLeftToTheBackfill() {
+        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.empty());
+        when(libreTranslateService.translateMessages(anyList())).thenThrow(new ResourceAccessException("Down"));
+
+        messageTranslationService.onMessageSaved(new MessageSavedEvent(1L));
+
+        verify(libreTranslateService, times(1)).translateMessages(anyList());
+        verify(messageTranslationRepository, never()).save(any());
+        verify(messageRepository).postponeTranslation(eq(1L), eq(DUE), any(LocalDateTime.class));
+        verify(messageRepository, never()).markTranslated(any(), any());
+    }
+
+    @Test
+    @DisplayName("Messages that keep failing wait twice as long after every attempt, up to the maximum")
+    void retryBackoffDoublesUpToTheMaximum() {
+        assertEquals(Duration.ofMinutes(10), messageTranslationService.retryBackoff(0));
+        assertEquals(Duration.ofMinutes(40), messageTranslationService.retryBackoff(2));
+        assertEquals(Duration.ofDays(1), messageTranslationService.retryBackoff(10));
+        assertEquals(Duration.ofDays(1), messageTranslationService.retryBackoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Stored translation is used when it matches the current text")
+    void storedTranslationIsUsed() {
+        MessageTranslation translation = new MessageTranslation();
+        translation.setSourceHash(ContentHash.of("Greeting", "Hello"));
+        translation.setTitle("Hälsning");
+        translation.setMessageBody("Hej");
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.of(translation));
+
+        assertEquals(List.of("Hälsning", "Hej"), messageTranslationService.findOrTranslate(message));
+        verify(libreTranslateService, never()).translateMessages(anyList());
+    }
+
+    @Test
+    @DisplayName("Outdated translation falls back to translating directly")
+    void outdatedTranslationFallsBack() {
+        MessageTranslation translation = new MessageTranslation();
+        translation.setSourceHash(ContentHash.of("Old title", "Hello"));
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.of(translation));
+        when(libreTranslateService.translateMessages(List.of("Greeting", "Hello"))).thenReturn(List.of("Hälsning", "Hej"));
+
+        assertEquals(List.of("Hälsning", "Hej"), messageTranslationService.findOrTranslate(message));
+    }
+
+    @Test
+    @DisplayName("Backfill translates the messages that are due")
+    void backfillTranslatesDueMessages() {
+        when(messageRepository.findIdsDueForTranslation(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(1L));
+        when(messageRepository.findAllById(List.of(1L))).thenReturn(List.of(message));
+        when(messageTranslationRepository.findByMessageId(1L)).thenReturn(Optional.empty());
+        when(libreTranslateService.translateMessages(List.of("Greeting", "Hello"))).thenReturn(List.of("Hälsning", "Hej"));
+
+        messageTranslationService.backfill();
+
+        verify(messageTranslationRepository).save(any());
+    }
+
+    @Test
+    @DisplayName("Backfill does nothing on a node where it is disabled")
+    void backfillDoesNothingWhenDisabled() {
+        messageTranslationService = new MessageTranslationService(messageRepository, messageTranslationRepository,
+                libreTranslateService, new TranslationPipelineProperties(1, 10, 10, false,
+                        Duration.ofMinutes(10), Duration.ofDays(1)));
+
+        messageTranslationService.backfill();
+
+        verify(messageRepository, never()).findIdsDueForTranslation(any(), any());
+    }
+
+}
@@ -0,0 +1,65 @@
+package se.iths.springbootgroupproject.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import se.iths.springbootgroupproject.configurations.CachingConfig;
+import se.iths.springbootgroupproject.repositories.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ContextConfiguration(classes = {CachingConfig.class, UserService.class})
+@ExtendWith(SpringExtension.class)
+class UserServiceCachingTest {
+
+    private static final List<String> USER_NAMES = List.of("ringBearer");
+
+    @MockBean
+    UserRepository userRepository;
+    @Autowired
+    UserService userService;
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache("userNames").clear();
+        when(userRepository.findUserNamesStartingWith(any(), any())).thenReturn(USER_NAMES);
+    }
+
+    @Test
+    @DisplayName("Arguments that normalize to the same query share one cache entry")
+    void normalizedArgumentsShareOneCacheEntry() {
+        assertEquals(USER_NAMES, userService.findUserNames("ring", UserService.MAX_USER_NAMES));
+        assertEquals(USER_NAMES, userService.findUserNames(" ring ", 1000));
+        assertEquals(USER_NAMES, userService.findUserNames("ring\t", Integer.MAX_VALUE));
+
+        verify(userRepository, times(1)).findUserNamesStartingWith("ring", Limit.of(UserService.MAX_USER_NAMES));
+    }
+
+    @Test
+    @DisplayName("Different queries are cached separately")
+    void differentQueriesAreCachedSeparately() {
+        userService.findUserNames("ring", 10);
+        userService.findUserNames("ring", 20);
+        userService.findUserNames("frodo", 10);
+
+        verify(userRepository).findUserNamesStartingWith("ring", Limit.of(10));
+        verify(userRepository).findUserNamesStartingWith("ring", Limit.of(20));
+        verify(userRepository).findUserNamesStartingWith("frodo", Limit.of(10));
+    }
+
+}
@@ -16,9 +16,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import se.iths.springbootgroupproject.dto.EditUserFormData;
 import se.iths.springbootgroupproject.entities.User;
 import se.iths.springbootgroupproject.repositories.UserRepository;
 
@@ -90,6 +92,27 @@ class UserServiceTest {
         assertSame(user, actualFindByGitHubIdResult);
     }
 
+    @Test
+    @DisplayName("Find by ID")
+    void findById() {
+        when(userRepository.findById(Mockito.<Long>any())).thenReturn(Optional.of(user));
+        User actualFindByIdResult = userService.findById(1L);
+
+        verify(userRepository).findById(1L);
+        assertSame(user, actualFindByIdResult);
+    }
+
+    @Test
+    @DisplayName("Find usernames caps the limit")
+    void findUserNamesCapsTheLimit() {
+        List<String> userNames = List.of("ringBearer");
+        when(userRepository.findUserNamesStartingWith(Mockito.any(), Mockito.any())).thenReturn(userNames);
+        List<String> actualFindUserNamesResult = userService.findUserNames(" ring ", 1000);
+
+        verify(userRepository).findUserNamesStartingWith("ring", Limit.of(UserService.MAX_USER_NAMES));
+        assertSame(userNames, actualFindUserNamesResult);
+    }
+
     @Test
     @DisplayName("Find by Email")
     void findByEmail() {
@@ -109,6 +132,22 @@ class UserServiceTest {
         verify(userRepository).updateEmail("frodo.baggins@shire.com", 1L);
     }
 
+    @Test
+    @DisplayName("Updating the profile changes a freshly loaded user and saves it")
+    void updateProfile() {
+        User loaded = new User();
+        loaded.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(loaded));
+
+        userService.updateProfile(1L, new EditUserFormData("samwise", "Samwise", "Gamgee", "sam@shire.com", null));
+
+        verify(userRepository).save(loaded);
+        assertEquals("samwise", loaded.getUserName());
+        assertEquals("Gamgee", loaded.getLastName());
+        assertEquals("sam@shire.com", loaded.getEmail());
+        assertEquals("ringBearer", user.getUserName());
+    }
+
     @Test
     @DisplayName("Saving user should populate fields correctly")
     void saveUser() {